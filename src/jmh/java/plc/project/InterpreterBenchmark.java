@@ -0,0 +1,60 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks integer arithmetic in the interpreter on a loop which adds one
+ * to and subtracts one from a value starting at {@link #start}. From 0 every
+ * result is in the shared cache of small integers, while from a large start
+ * the results of x allocate a new BigInteger, which {@code -prof gc} shows as
+ * the difference in allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @Param({"0", "1000000000"})
+    public int start;
+
+    private Ast.Source ast;
+
+    @Setup
+    public void setup() {
+        String source = String.join("\n",
+                "FUN main(): Integer DO",
+                "    LET x: Integer = " + start + ";",
+                "    LET i: Integer = 0;",
+                "    WHILE i < 1000 DO",
+                "        x = x + 1;",
+                "        x = x - 1;",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN x;",
+                "END",
+                "");
+        ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new plc.project.Scope(null)).visit(ast);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpret() {
+        return new Interpreter(new plc.project.Scope(null)).visit(ast);
+    }
+
+}
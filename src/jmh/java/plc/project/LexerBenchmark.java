@@ -0,0 +1,79 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lexer on a source of {@link #megabytes} from {@link
+ * ProgramGenerator#repeated(int)}, into a list of tokens and into a {@link
+ * TokenBuffer}, from a string and from a mapped file, with and without the
+ * bulk scan. Multiplying ops/s by the size gives the throughput in MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"1", "8"})
+    public int megabytes;
+
+    @Param({"true", "false"})
+    public boolean bulkScan;
+
+    private String source;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        source = ProgramGenerator.repeated(megabytes * 1024 * 1024);
+        file = Files.createTempFile("lexer", ".plc");
+        Files.write(file, source.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        Lexer lexer = new Lexer(source);
+        lexer.setBulkScan(bulkScan);
+        return lexer.lex();
+    }
+
+    @Benchmark
+    public TokenBuffer lexBuffer() {
+        Lexer lexer = new Lexer(source);
+        lexer.setBulkScan(bulkScan);
+        return lexer.lexBuffer();
+    }
+
+    @Benchmark
+    public TokenBuffer lexMapped() throws IOException {
+        Lexer lexer = Lexer.fromFile(file);
+        lexer.setBulkScan(bulkScan);
+        return lexer.lexBuffer();
+    }
+
+}
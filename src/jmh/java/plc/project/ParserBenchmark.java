@@ -0,0 +1,46 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the parser on statement-heavy input from {@link
+ * ProgramGenerator#statements(int)}, where choosing the production of each
+ * statement is a large part of the work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"1000", "20000"})
+    public int statements;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setup() {
+        tokens = new Lexer(ProgramGenerator.statements(statements)).lex();
+    }
+
+    @Benchmark
+    public Ast.Source parseStatements() {
+        return new Parser(tokens).parseSource();
+    }
+
+}
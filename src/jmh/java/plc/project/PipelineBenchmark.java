@@ -0,0 +1,85 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each stage of the compiler on a program from {@link
+ * ProgramGenerator}, with the input of each stage prepared once in {@link
+ * #setup()}. Run with {@code gradle jmh}, which reports ops/s along with the
+ * allocation rate from {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"10", "100"})
+    public int functions;
+
+    @Param({"2", "8"})
+    public int depth;
+
+    @Param({"10", "1000"})
+    public int listSize;
+
+    private String source;
+    private List<Token> tokens;
+    private Ast.Source ast;
+
+    @Setup
+    public void setup() {
+        source = ProgramGenerator.generate(functions, depth, listSize);
+        tokens = new Lexer(source).lex();
+        ast = new Parser(tokens).parseSource();
+        // the generator needs the types and variables set by the analyzer
+        new Analyzer(new plc.project.Scope(null)).visit(ast);
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return new Lexer(source).lex();
+    }
+
+    @Benchmark
+    public Ast.Source parse() {
+        return new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public plc.project.Scope analyze() {
+        Analyzer analyzer = new Analyzer(new plc.project.Scope(null));
+        analyzer.visit(ast);
+        return analyzer.getScope();
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpret() {
+        return new Interpreter(new plc.project.Scope(null)).visit(ast);
+    }
+
+    @Benchmark
+    public String generate() {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
@@ -0,0 +1,113 @@
+package plc.project;
+
+/**
+ * Generates synthetic programs for the benchmarks, scaled by the number of
+ * functions, the nesting depth of the statements in each function and the
+ * size of the global list. Every program lexes, parses, analyzes, interprets
+ * and generates, so each stage can be measured on the same source.
+ *
+ * Each function declares a counter and loops over it with a chain of nested
+ * if statements, and main calls every function and returns the sum of their
+ * results, so interpreting a program runs every statement.
+ */
+public final class ProgramGenerator {
+
+    private static final String SNIPPET = String.join("\n",
+            "VAR counter: Integer = 0;",
+            "FUN main(): Integer DO",
+            "    LET x: Integer = 12345;",
+            "    LET name = \"hello, world\\n\";",
+            "    LET decimal = -3.14159;",
+            "    WHILE x != 0 DO",
+            "        x = x - 1;",
+            "        print(name + 'c');",
+            "        IF x > counter DO counter = counter + 1; END",
+            "    END",
+            "    RETURN counter;",
+            "END",
+            "");
+
+    private ProgramGenerator() {}
+
+    public static String generate(int functions, int depth, int listSize) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("VAR total: Integer = 0;\n");
+        builder.append("VAR scale: Decimal = 1.5;\n");
+        builder.append("LIST values: Integer = [");
+        for (int i = 0; i < listSize; i++) {
+            builder.append(i == 0 ? "" : ", ").append(i);
+        }
+        builder.append("];\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("FUN f").append(i).append("(): Integer DO\n");
+            builder.append("    LET x: Integer = 0;\n");
+            builder.append("    LET name: String = \"f").append(i).append("\";\n");
+            builder.append("    WHILE x < 10 DO\n");
+            for (int d = 0; d < depth; d++) {
+                indent(builder, d + 2).append("IF x > ").append(d).append(" && TRUE DO\n");
+            }
+            indent(builder, depth + 2).append("total = total + x * 2 - values[0];\n");
+            for (int d = depth - 1; d >= 0; d--) {
+                indent(builder, d + 2).append("ELSE\n");
+                indent(builder, d + 3).append("total = total + 1;\n");
+                indent(builder, d + 2).append("END\n");
+            }
+            builder.append("        x = x + 1;\n");
+            builder.append("    END\n");
+            builder.append("    RETURN x;\n");
+            builder.append("END\n");
+        }
+        builder.append("FUN main(): Integer DO\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("    f").append(i).append("();\n");
+        }
+        builder.append("    RETURN total;\n");
+        builder.append("END\n");
+        return builder.toString();
+    }
+
+    /**
+     * Generates a single function with the given number of statements,
+     * cycling through every kind of statement, for benchmarking the parser
+     * on statement-heavy input.
+     */
+    public static String statements(int count) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("FUN main(): Integer DO\n");
+        builder.append("    LET x: Integer = 0;\n");
+        for (int i = 0; i < count; i++) {
+            switch (i % 6) {
+                case 0: builder.append("    LET y").append(i).append(": Integer = x + ").append(i).append(";\n"); break;
+                case 1: builder.append("    x = x * 2 - 1;\n"); break;
+                case 2: builder.append("    print(x);\n"); break;
+                case 3: builder.append("    IF x > ").append(i).append(" DO x = 0; ELSE x = x + 1; END\n"); break;
+                case 4: builder.append("    WHILE x < 10 DO x = x + 1; END\n"); break;
+                default: builder.append("    SWITCH x CASE 1: x = 2; DEFAULT x = 3; END\n"); break;
+            }
+        }
+        builder.append("    RETURN x;\n");
+        builder.append("END\n");
+        return builder.toString();
+    }
+
+    /**
+     * Generates a source of at least the given number of characters by
+     * repeating a snippet with every kind of literal, for benchmarking the
+     * lexer. The source lexes but does not parse, as it repeats main.
+     */
+    public static String repeated(int length) {
+        StringBuilder builder = new StringBuilder(length + SNIPPET.length());
+        while (builder.length() < length) {
+            builder.append(SNIPPET);
+        }
+        return builder.toString();
+    }
+
+    private static StringBuilder indent(StringBuilder builder, int level) {
+        for (int i = 0; i < level; i++) {
+            builder.append("    ");
+        }
+        return builder;
+    }
+
+}
@@ -17,6 +17,10 @@ import java.util.stream.Collectors;
  */
 public final class Analyzer implements Ast.Visitor<Void> {
 
+    // bounds of the decimal literals, created once instead of on each literal
+    private static final BigDecimal DOUBLE_MAX = BigDecimal.valueOf(Double.MAX_VALUE);
+    private static final BigDecimal DOUBLE_MIN = BigDecimal.valueOf(Double.MIN_VALUE);
+
     public Scope scope;
     private Ast.Function function;
 
@@ -29,6 +33,17 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return scope;
     }
 
+    /**
+     * Analyzes the source and returns the analyzed tree. A tree shared by a
+     * {@link ParseCache} cannot be analyzed in place, so it is copied first
+     * and the copy is analyzed and returned instead.
+     */
+    public Ast.Source analyze(Ast.Source ast) {
+        Ast.Source source = ast.isShared() ? AstCopier.copy(ast) : ast;
+        visit(source);
+        return source;
+    }
+
     @Override
     public Void visit(Ast.Source ast) {
         // Visiting globals
@@ -258,12 +273,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
         // if the ast literal is a BigInteger, check that it isn't too big to be a Java int
         else if (ast.getLiteral() instanceof BigInteger) {
-            // if the literal is larger than the max value of int, then throw exception
-            if (((BigInteger) ast.getLiteral()).compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
-                throw new RuntimeException("Literal is out of range of java int");
-            }
-            // else if the literal is smaller than the smallest value of int
-            else if (((BigInteger) ast.getLiteral()).compareTo(BigInteger.valueOf(Integer.MIN_VALUE)) < 0) {
+            // if the literal needs more than 31 bits besides the sign, it is out of the range of int
+            if (((BigInteger) ast.getLiteral()).bitLength() >= Integer.SIZE) {
                 throw new RuntimeException("Literal is out of range of java int");
             }
             else {
@@ -273,11 +284,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
         // else if the ast literal is a BigDecimal, make sure it isn't out of range of a Java double
         else if (ast.getLiteral() instanceof BigDecimal) {
             // check if greater than
-            if (((BigDecimal) ast.getLiteral()).compareTo(BigDecimal.valueOf(Double.MAX_VALUE)) > 0) {
+            if (((BigDecimal) ast.getLiteral()).compareTo(DOUBLE_MAX) > 0) {
                 throw new RuntimeException("Literal is out of range of java double");
             }
             // check if less than the smallest double
-            else if (((BigDecimal) ast.getLiteral()).compareTo(BigDecimal.valueOf(Double.MIN_VALUE)) < 0) {
+            else if (((BigDecimal) ast.getLiteral()).compareTo(DOUBLE_MIN) < 0) {
                 throw new RuntimeException("Literal is out of range of java double");
             }
             else {
@@ -11,6 +11,30 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    private boolean shared = false;
+
+    /**
+     * Returns true if the node is part of a tree cached by a {@link
+     * ParseCache}, which the analyzer must not set anything on.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Marks the node as shared, after which the setters for the analyzer's
+     * results throw.
+     */
+    void share() {
+        shared = true;
+    }
+
+    void checkUnshared() {
+        if (shared) {
+            throw new IllegalStateException("node is shared by a parse cache and must be copied before it is analyzed");
+        }
+    }
+
     public static final class Source extends Ast {
 
         private final List<Global> globals;
@@ -90,6 +114,7 @@ public abstract class Ast {
         }
 
         public void setVariable(Environment.Variable variable) {
+            checkUnshared();
             this.variable = variable;
         }
 
@@ -170,6 +195,7 @@ public abstract class Ast {
         }
 
         public void setFunction(Environment.Function function) {
+            checkUnshared();
             this.function = function;
         }
 
@@ -266,6 +292,7 @@ public abstract class Ast {
             }
 
             public void setVariable(Environment.Variable variable) {
+                checkUnshared();
                 this.variable = variable;
             }
             
@@ -500,6 +527,39 @@ public abstract class Ast {
 
         }
 
+        /**
+         * A statement which failed to parse, left in place of it by the
+         * parser in recovery mode. Visitors rethrow the exception by default,
+         * so a program with errors cannot be analyzed or run.
+         */
+        public static final class Error extends Statement {
+
+            private final ParseException exception;
+
+            public Error(ParseException exception) {
+                this.exception = exception;
+            }
+
+            public ParseException getException() {
+                return exception;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return obj instanceof Error &&
+                        exception.getIndex() == ((Error) obj).exception.getIndex();
+            }
+
+            @Override
+            public String toString() {
+                return "Ast.Statement.Error{" +
+                        "message=" + exception.getMessage() +
+                        ", index=" + exception.getIndex() +
+                        '}';
+            }
+
+        }
+
     }
 
     public static abstract class Expression extends Ast {
@@ -528,6 +588,7 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                checkUnshared();
                 this.type = type;
             }
 
@@ -572,6 +633,7 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                checkUnshared();
                 this.type = type;
             }
 
@@ -628,6 +690,7 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                checkUnshared();
                 this.type = type;
             }
 
@@ -680,6 +743,7 @@ public abstract class Ast {
             }
 
             public void setVariable(Environment.Variable variable) {
+                checkUnshared();
                 this.variable = variable;
             }
 
@@ -735,6 +799,7 @@ public abstract class Ast {
             }
 
             public void setFunction(Environment.Function function) {
+                checkUnshared();
                 this.function = function;
             }
 
@@ -785,6 +850,7 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                checkUnshared();
                 this.type = type;
             }
 
@@ -832,6 +898,8 @@ public abstract class Ast {
                 return visit((Ast.Statement.While) ast);
             } else if (ast instanceof Ast.Statement.Return) {
                 return visit((Ast.Statement.Return) ast);
+            } else if (ast instanceof Ast.Statement.Error) {
+                return visit((Ast.Statement.Error) ast);
             } else if (ast instanceof Ast.Expression.Literal) {
                 return visit((Ast.Expression.Literal) ast);
             } else if (ast instanceof Ast.Expression.Group) {
@@ -871,6 +939,10 @@ public abstract class Ast {
 
         T visit(Ast.Statement.Return ast);
 
+        default T visit(Ast.Statement.Error ast) {
+            throw ast.getException();
+        }
+
         T visit(Ast.Expression.Literal ast);
 
         T visit(Ast.Expression.Group ast);
@@ -0,0 +1,135 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Copies a tree node by node, leaving out anything set by the analyzer, so a
+ * tree shared by a {@link ParseCache} can be analyzed as a copy. Every node
+ * the analyzer sets something on is copied, along with the statements
+ * holding them since their children are final. Names, literals, exceptions
+ * and error nodes are immutable and shared with the original.
+ */
+final class AstCopier implements Ast.Visitor<Ast> {
+
+    private AstCopier() {}
+
+    /**
+     * Returns a copy of the source which can be analyzed, even if the source
+     * is shared.
+     */
+    public static Ast.Source copy(Ast.Source ast) {
+        return (Ast.Source) new AstCopier().visit(ast);
+    }
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+        return new Ast.Source(copy(ast.getGlobals()), copy(ast.getFunctions()));
+    }
+
+    @Override
+    public Ast visit(Ast.Global ast) {
+        return new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), copy(ast.getValue()));
+    }
+
+    @Override
+    public Ast visit(Ast.Function ast) {
+        return new Ast.Function(ast.getName(), new ArrayList<>(ast.getParameters()),
+                new ArrayList<>(ast.getParameterTypeNames()), ast.getReturnTypeName(), copy(ast.getStatements()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Expression ast) {
+        return new Ast.Statement.Expression(copy(ast.getExpression()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Declaration ast) {
+        return new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), copy(ast.getValue()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Assignment ast) {
+        return new Ast.Statement.Assignment(copy(ast.getReceiver()), copy(ast.getValue()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.If ast) {
+        return new Ast.Statement.If(copy(ast.getCondition()), copy(ast.getThenStatements()), copy(ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Switch ast) {
+        return new Ast.Statement.Switch(copy(ast.getCondition()), copy(ast.getCases()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Case ast) {
+        return new Ast.Statement.Case(copy(ast.getValue()), copy(ast.getStatements()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.While ast) {
+        return new Ast.Statement.While(copy(ast.getCondition()), copy(ast.getStatements()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Return ast) {
+        return new Ast.Statement.Return(copy(ast.getValue()));
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Error ast) {
+        // nothing is set on an error, so it is shared with the original
+        return ast;
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Literal ast) {
+        return new Ast.Expression.Literal(ast.getLiteral());
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Group ast) {
+        return new Ast.Expression.Group(copy(ast.getExpression()));
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Binary ast) {
+        return new Ast.Expression.Binary(ast.getOperator(), copy(ast.getLeft()), copy(ast.getRight()));
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Access ast) {
+        return new Ast.Expression.Access(copy(ast.getOffset()), ast.getName());
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Function ast) {
+        return new Ast.Expression.Function(ast.getName(), copy(ast.getArguments()));
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.PlcList ast) {
+        return new Ast.Expression.PlcList(copy(ast.getValues()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Ast> T copy(T ast) {
+        return (T) visit(ast);
+    }
+
+    private <T extends Ast> Optional<T> copy(Optional<T> ast) {
+        return ast.map(this::copy);
+    }
+
+    private <T extends Ast> List<T> copy(List<T> asts) {
+        List<T> copies = new ArrayList<>(asts.size());
+        for (T ast : asts) {
+            copies.add(copy(ast));
+        }
+        return copies;
+    }
+
+}
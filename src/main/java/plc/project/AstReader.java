@@ -0,0 +1,376 @@
+package plc.project;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads an AST written by {@link AstWriter}. The reader checks the header
+ * and rejects anything which is not in the format or has a newer version,
+ * then reads the nodes as they come, so the input can be a stream.
+ * <p>
+ * Variables and functions set by the analyzer are read back with their
+ * names and types, which compare equal to the originals, but a function
+ * read back throws if invoked and a variable has no value.
+ */
+public final class AstReader {
+
+    private final DataInput input;
+    private final List<String> strings = new ArrayList<>();
+    private boolean analyzed;
+
+    public AstReader(DataInput input) {
+        this.input = input;
+    }
+
+    /**
+     * Reads the tree in the given file, mapped into memory and decoded from
+     * the buffer directly rather than read through a stream.
+     */
+    public static Ast read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new AstReader(new BufferInput(buffer)).read();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Binary AST ends before the tree is complete.");
+        }
+    }
+
+    /**
+     * Reads a header and the tree following it.
+     */
+    public Ast read() throws IOException {
+        strings.clear();
+        if (input.readInt() != AstWriter.MAGIC) {
+            throw new IOException("Input is not a binary AST.");
+        }
+        int version = input.readUnsignedShort();
+        if (version > AstWriter.VERSION) {
+            throw new IOException("Unsupported binary AST version " + version + ", expected at most " + AstWriter.VERSION + ".");
+        }
+        analyzed = (input.readUnsignedByte() & AstWriter.ANALYZED) != 0;
+        return node();
+    }
+
+    private Ast node() throws IOException {
+        byte tag = input.readByte();
+        switch (tag) {
+            case AstWriter.SOURCE: {
+                List<Ast.Global> globals = list(Ast.Global.class);
+                return new Ast.Source(globals, list(Ast.Function.class));
+            }
+            case AstWriter.GLOBAL: {
+                Ast.Global ast = new Ast.Global(string(), string(), input.readBoolean(), optional(Ast.Expression.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setVariable(variable());
+                }
+                return ast;
+            }
+            case AstWriter.FUNCTION: {
+                String name = string();
+                List<String> parameters = strings();
+                List<String> parameterTypeNames = strings();
+                Optional<String> returnTypeName = input.readBoolean() ? Optional.of(string()) : Optional.empty();
+                Ast.Function ast = new Ast.Function(name, parameters, parameterTypeNames, returnTypeName, list(Ast.Statement.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setFunction(function());
+                }
+                return ast;
+            }
+            case AstWriter.EXPRESSION_STATEMENT:
+                return new Ast.Statement.Expression(node(Ast.Expression.class));
+            case AstWriter.DECLARATION: {
+                String name = string();
+                Optional<String> typeName = input.readBoolean() ? Optional.of(string()) : Optional.empty();
+                Ast.Statement.Declaration ast = new Ast.Statement.Declaration(name, typeName, optional(Ast.Expression.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setVariable(variable());
+                }
+                return ast;
+            }
+            case AstWriter.ASSIGNMENT: {
+                Ast.Expression receiver = node(Ast.Expression.class);
+                return new Ast.Statement.Assignment(receiver, node(Ast.Expression.class));
+            }
+            case AstWriter.IF: {
+                Ast.Expression condition = node(Ast.Expression.class);
+                List<Ast.Statement> thenStatements = list(Ast.Statement.class);
+                return new Ast.Statement.If(condition, thenStatements, list(Ast.Statement.class));
+            }
+            case AstWriter.SWITCH: {
+                Ast.Expression condition = node(Ast.Expression.class);
+                return new Ast.Statement.Switch(condition, list(Ast.Statement.Case.class));
+            }
+            case AstWriter.CASE: {
+                Optional<Ast.Expression> value = optional(Ast.Expression.class);
+                return new Ast.Statement.Case(value, list(Ast.Statement.class));
+            }
+            case AstWriter.WHILE: {
+                Ast.Expression condition = node(Ast.Expression.class);
+                return new Ast.Statement.While(condition, list(Ast.Statement.class));
+            }
+            case AstWriter.RETURN:
+                return new Ast.Statement.Return(node(Ast.Expression.class));
+            case AstWriter.ERROR:
+                return new Ast.Statement.Error(new ParseException(string(), integer()));
+            case AstWriter.LITERAL: {
+                Ast.Expression.Literal ast = new Ast.Expression.Literal(literal());
+                if (analyzed && input.readBoolean()) {
+                    ast.setType(type());
+                }
+                return ast;
+            }
+            case AstWriter.GROUP: {
+                Ast.Expression.Group ast = new Ast.Expression.Group(node(Ast.Expression.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setType(type());
+                }
+                return ast;
+            }
+            case AstWriter.BINARY: {
+                String operator = string();
+                Ast.Expression left = node(Ast.Expression.class);
+                Ast.Expression.Binary ast = new Ast.Expression.Binary(operator, left, node(Ast.Expression.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setType(type());
+                }
+                return ast;
+            }
+            case AstWriter.ACCESS: {
+                Optional<Ast.Expression> offset = optional(Ast.Expression.class);
+                Ast.Expression.Access ast = new Ast.Expression.Access(offset, string());
+                if (analyzed && input.readBoolean()) {
+                    ast.setVariable(variable());
+                }
+                return ast;
+            }
+            case AstWriter.CALL: {
+                Ast.Expression.Function ast = new Ast.Expression.Function(string(), list(Ast.Expression.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setFunction(function());
+                }
+                return ast;
+            }
+            case AstWriter.LIST: {
+                Ast.Expression.PlcList ast = new Ast.Expression.PlcList(list(Ast.Expression.class));
+                if (analyzed && input.readBoolean()) {
+                    ast.setType(type());
+                }
+                return ast;
+            }
+            default:
+                throw new IOException("Unknown node tag " + tag + ".");
+        }
+    }
+
+    private Object literal() throws IOException {
+        byte tag = input.readByte();
+        switch (tag) {
+            case AstWriter.NIL: return null;
+            case AstWriter.TRUE: return Boolean.TRUE;
+            case AstWriter.FALSE: return Boolean.FALSE;
+            case AstWriter.LONG: return BigInteger.valueOf(input.readLong());
+            case AstWriter.BIG_INTEGER: return new BigInteger(bytes());
+            case AstWriter.DECIMAL: return new BigDecimal(new BigInteger(bytes()), integer());
+            case AstWriter.CHARACTER: return input.readChar();
+            case AstWriter.STRING: return string();
+            case AstWriter.INT: return integer();
+            case AstWriter.DOUBLE: return input.readDouble();
+            default: throw new IOException("Unknown literal tag " + tag + ".");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Ast> T node(Class<T> type) throws IOException {
+        Ast ast = node();
+        if (!type.isInstance(ast)) {
+            throw new IOException("Expected " + type.getSimpleName() + ", received " + ast.getClass().getSimpleName() + ".");
+        }
+        return (T) ast;
+    }
+
+    private <T extends Ast> List<T> list(Class<T> type) throws IOException {
+        int size = integer();
+        List<T> asts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            asts.add(node(type));
+        }
+        return asts;
+    }
+
+    private <T extends Ast> Optional<T> optional(Class<T> type) throws IOException {
+        return input.readBoolean() ? Optional.of(node(type)) : Optional.empty();
+    }
+
+    private Environment.Type type() throws IOException {
+        return Environment.getType(string());
+    }
+
+    private Environment.Variable variable() throws IOException {
+        String name = string();
+        String jvmName = string();
+        return new Environment.Variable(name, jvmName, type(), input.readBoolean(), Environment.NIL);
+    }
+
+    private Environment.Function function() throws IOException {
+        String name = string();
+        String jvmName = string();
+        int arity = integer();
+        List<Environment.Type> parameterTypes = new ArrayList<>(arity);
+        for (int i = 0; i < arity; i++) {
+            parameterTypes.add(type());
+        }
+        return new Environment.Function(name, jvmName, parameterTypes, type(), arguments -> {
+            throw new UnsupportedOperationException("Function " + name + " was read from a binary AST and cannot be invoked.");
+        });
+    }
+
+    private List<String> strings() throws IOException {
+        int size = integer();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(string());
+        }
+        return values;
+    }
+
+    private String string() throws IOException {
+        int reference = integer();
+        if (reference != AstWriter.NEW_STRING) {
+            if (reference < 0 || reference > strings.size()) {
+                throw new IOException("Invalid string reference " + reference + ".");
+            }
+            return strings.get(reference - 1);
+        }
+        String value = new String(bytes(), StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    private byte[] bytes() throws IOException {
+        byte[] bytes = new byte[integer()];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a variable length integer written by {@link AstWriter}.
+     */
+    private int integer() throws IOException {
+        int bits = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int next = input.readUnsignedByte();
+            bits |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return (bits >>> 1) ^ -(bits & 1);
+            }
+        }
+        throw new IOException("Malformed variable length integer.");
+    }
+
+    /**
+     * Data input decoded from a byte buffer, such as a mapped file, with the
+     * reads of the buffer itself. The buffer is big endian like the output
+     * of {@link AstWriter}, and reading past the end throws a {@link
+     * BufferUnderflowException}.
+     */
+    private static final class BufferInput implements DataInput {
+
+        private final ByteBuffer buffer;
+
+        private BufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void readFully(byte[] bytes) {
+            buffer.get(bytes);
+        }
+
+        @Override
+        public void readFully(byte[] bytes, int offset, int length) {
+            buffer.get(bytes, offset, length);
+        }
+
+        @Override
+        public int skipBytes(int n) {
+            n = Math.min(Math.max(n, 0), buffer.remaining());
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+        @Override
+        public byte readByte() {
+            return buffer.get();
+        }
+
+        @Override
+        public int readUnsignedByte() {
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public short readShort() {
+            return buffer.getShort();
+        }
+
+        @Override
+        public int readUnsignedShort() {
+            return buffer.getShort() & 0xFFFF;
+        }
+
+        @Override
+        public char readChar() {
+            return buffer.getChar();
+        }
+
+        @Override
+        public int readInt() {
+            return buffer.getInt();
+        }
+
+        @Override
+        public long readLong() {
+            return buffer.getLong();
+        }
+
+        @Override
+        public float readFloat() {
+            return buffer.getFloat();
+        }
+
+        @Override
+        public double readDouble() {
+            return buffer.getDouble();
+        }
+
+        @Override
+        public String readLine() {
+            throw new UnsupportedOperationException("A binary AST has no lines.");
+        }
+
+        @Override
+        public String readUTF() throws IOException {
+            return DataInputStream.readUTF(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,438 @@
+package plc.project;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Writes an AST in a compact binary format, read back by {@link AstReader}.
+ * The format starts with a header of {@link #MAGIC}, the {@link #VERSION} and
+ * flags, followed by the nodes in prefix order: a tag byte per node, then
+ * its fields and children. Lists are written as a count followed by their
+ * elements, and optionals as a presence flag. Counts, indices and other
+ * integers are written as variable length integers, seven bits per byte
+ * with zigzag encoding for the sign, so most take a single byte. Strings
+ * are written once and then referred to by index, so a name repeated across
+ * a program usually costs one or two bytes.
+ * <p>
+ * If the writer is created with {@code analyzed}, it also writes whatever
+ * the {@link Analyzer} set on each node: the types of expressions and the
+ * variables and functions they refer to. Variables and functions are written
+ * as their names and types only, which is everything the {@link Generator}
+ * needs; a function read back cannot be invoked.
+ * <p>
+ * Nothing is buffered, so the output can be a stream to a file. The writer
+ * can write several trees to the same output, each with its own header.
+ */
+public final class AstWriter implements Ast.Visitor<Void> {
+
+    /**
+     * The first four bytes of the format, {@code PLCA}.
+     */
+    public static final int MAGIC = 0x504C4341;
+
+    /**
+     * The version of the format, increased on every incompatible change.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The header flag set if the analyzer's results were written.
+     */
+    static final int ANALYZED = 1;
+
+    static final byte SOURCE = 1;
+    static final byte GLOBAL = 2;
+    static final byte FUNCTION = 3;
+    static final byte EXPRESSION_STATEMENT = 4;
+    static final byte DECLARATION = 5;
+    static final byte ASSIGNMENT = 6;
+    static final byte IF = 7;
+    static final byte SWITCH = 8;
+    static final byte CASE = 9;
+    static final byte WHILE = 10;
+    static final byte RETURN = 11;
+    static final byte ERROR = 12;
+    static final byte LITERAL = 13;
+    static final byte GROUP = 14;
+    static final byte BINARY = 15;
+    static final byte ACCESS = 16;
+    static final byte CALL = 17;
+    static final byte LIST = 18;
+
+    static final byte NIL = 0;
+    static final byte TRUE = 1;
+    static final byte FALSE = 2;
+    static final byte LONG = 3;
+    static final byte BIG_INTEGER = 4;
+    static final byte DECIMAL = 5;
+    static final byte CHARACTER = 6;
+    static final byte STRING = 7;
+    static final byte INT = 8;
+    static final byte DOUBLE = 9;
+
+    /**
+     * The reference to a string which has not been written before, and so
+     * follows as its UTF-8 length and bytes. Other references are the index
+     * of the string plus one.
+     */
+    static final int NEW_STRING = 0;
+
+    private final DataOutput output;
+    private final boolean analyzed;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public AstWriter(DataOutput output, boolean analyzed) {
+        this.output = output;
+        this.analyzed = analyzed;
+    }
+
+    /**
+     * Writes a header and the given tree. The string table is reset, so the
+     * tree can be read on its own.
+     */
+    public void write(Ast ast) throws IOException {
+        strings.clear();
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.writeByte(analyzed ? ANALYZED : 0);
+        try {
+            visit(ast);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        tag(SOURCE);
+        list(ast.getGlobals());
+        list(ast.getFunctions());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        tag(GLOBAL);
+        string(ast.getName());
+        string(ast.getTypeName());
+        bool(ast.getMutable());
+        optional(ast.getValue());
+        if (analyzed) {
+            variable(ast::getVariable);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        tag(FUNCTION);
+        string(ast.getName());
+        strings(ast.getParameters());
+        strings(ast.getParameterTypeNames());
+        bool(ast.getReturnTypeName().isPresent());
+        ast.getReturnTypeName().ifPresent(this::string);
+        list(ast.getStatements());
+        if (analyzed) {
+            function(ast::getFunction);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        tag(EXPRESSION_STATEMENT);
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        tag(DECLARATION);
+        string(ast.getName());
+        bool(ast.getTypeName().isPresent());
+        ast.getTypeName().ifPresent(this::string);
+        optional(ast.getValue());
+        if (analyzed) {
+            variable(ast::getVariable);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        tag(ASSIGNMENT);
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        tag(IF);
+        visit(ast.getCondition());
+        list(ast.getThenStatements());
+        list(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        tag(SWITCH);
+        visit(ast.getCondition());
+        list(ast.getCases());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        tag(CASE);
+        optional(ast.getValue());
+        list(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        tag(WHILE);
+        visit(ast.getCondition());
+        list(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        tag(RETURN);
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Error ast) {
+        tag(ERROR);
+        string(ast.getException().getMessage());
+        integer(ast.getException().getIndex());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        tag(LITERAL);
+        Object literal = ast.getLiteral();
+        if (literal == null) {
+            tag(NIL);
+        } else if (literal instanceof Boolean) {
+            tag((Boolean) literal ? TRUE : FALSE);
+        } else if (literal instanceof BigInteger && ((BigInteger) literal).bitLength() < Long.SIZE) {
+            tag(LONG);
+            run(() -> output.writeLong(((BigInteger) literal).longValue()));
+        } else if (literal instanceof BigInteger) {
+            tag(BIG_INTEGER);
+            bytes(((BigInteger) literal).toByteArray());
+        } else if (literal instanceof BigDecimal) {
+            tag(DECIMAL);
+            bytes(((BigDecimal) literal).unscaledValue().toByteArray());
+            integer(((BigDecimal) literal).scale());
+        } else if (literal instanceof Character) {
+            tag(CHARACTER);
+            run(() -> output.writeChar((Character) literal));
+        } else if (literal instanceof String) {
+            tag(STRING);
+            string((String) literal);
+        } else if (literal instanceof Integer) {
+            // trees built by hand, such as for the generator, may use the JVM types
+            tag(INT);
+            integer((Integer) literal);
+        } else if (literal instanceof Double) {
+            tag(DOUBLE);
+            run(() -> output.writeDouble((Double) literal));
+        } else {
+            throw new IllegalArgumentException("Unsupported literal " + literal.getClass().getName() + ".");
+        }
+        if (analyzed) {
+            type(ast::getType);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        tag(GROUP);
+        visit(ast.getExpression());
+        if (analyzed) {
+            type(ast::getType);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        tag(BINARY);
+        string(ast.getOperator());
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        if (analyzed) {
+            type(ast::getType);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        tag(ACCESS);
+        optional(ast.getOffset());
+        string(ast.getName());
+        if (analyzed) {
+            variable(ast::getVariable);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        tag(CALL);
+        string(ast.getName());
+        list(ast.getArguments());
+        if (analyzed) {
+            function(ast::getFunction);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        tag(LIST);
+        list(ast.getValues());
+        if (analyzed) {
+            type(ast::getType);
+        }
+        return null;
+    }
+
+    private void list(List<? extends Ast> asts) {
+        integer(asts.size());
+        for (Ast ast : asts) {
+            visit(ast);
+        }
+    }
+
+    private void optional(Optional<? extends Ast> ast) {
+        bool(ast.isPresent());
+        ast.ifPresent(this::visit);
+    }
+
+    /**
+     * Writes the type set by the analyzer, if any. The getters of the AST
+     * throw if nothing was set, so they are passed in to be tried.
+     */
+    private void type(Supplier<Environment.Type> getter) {
+        Environment.Type type = analyzed(getter);
+        bool(type != null);
+        if (type != null) {
+            string(type.getName());
+        }
+    }
+
+    private void variable(Supplier<Environment.Variable> getter) {
+        Environment.Variable variable = analyzed(getter);
+        bool(variable != null);
+        if (variable != null) {
+            string(variable.getName());
+            string(variable.getJvmName());
+            string(variable.getType().getName());
+            bool(variable.getMutable());
+        }
+    }
+
+    private void function(Supplier<Environment.Function> getter) {
+        Environment.Function function = analyzed(getter);
+        bool(function != null);
+        if (function != null) {
+            string(function.getName());
+            string(function.getJvmName());
+            integer(function.getParameterTypes().size());
+            for (Environment.Type type : function.getParameterTypes()) {
+                string(type.getName());
+            }
+            string(function.getReturnType().getName());
+        }
+    }
+
+    private static <T> T analyzed(Supplier<T> getter) {
+        try {
+            return getter.get();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private void strings(List<String> values) {
+        integer(values.size());
+        for (String value : values) {
+            string(value);
+        }
+    }
+
+    private void string(String value) {
+        Integer index = strings.get(value);
+        if (index != null) {
+            integer(index + 1);
+            return;
+        }
+        strings.put(value, strings.size());
+        integer(NEW_STRING);
+        bytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void bytes(byte[] bytes) {
+        integer(bytes.length);
+        run(() -> output.write(bytes));
+    }
+
+    private void tag(byte tag) {
+        run(() -> output.writeByte(tag));
+    }
+
+    private void bool(boolean value) {
+        run(() -> output.writeBoolean(value));
+    }
+
+    private void integer(int value) {
+        int bits = (value << 1) ^ (value >> 31);
+        run(() -> {
+            int remaining = bits;
+            while ((remaining & ~0x7F) != 0) {
+                output.writeByte((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            output.writeByte(remaining);
+        });
+    }
+
+    /**
+     * Runs a write, rethrowing its exception unchecked so it can pass through
+     * the visitor methods, to be unwrapped by {@link #write(Ast)}.
+     */
+    private static void run(Write write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface Write {
+
+        void run() throws IOException;
+
+    }
+
+}
@@ -0,0 +1,436 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An AST stored as parallel arrays rather than a graph of objects. Each node
+ * is an index with a kind, a value and a range of children; the children of
+ * all nodes are stored one after another in a single array, and names,
+ * operators and literals in a shared pool with each distinct value stored
+ * once. Nodes are numbered in prefix order, so node 0 is the root and every
+ * child has a larger index than its parent, and a walk over the indices in
+ * order visits the tree depth first.
+ * <p>
+ * The value of a node depends on its kind, as do its children:
+ * <ul>
+ *     <li>{@link #SOURCE}: the number of globals; the globals, then the
+ *     functions.</li>
+ *     <li>{@link #GLOBAL}: the pool index of the name, followed by the type
+ *     name and whether it is mutable; the value, if any.</li>
+ *     <li>{@link #FUNCTION}: the pool index of the name, followed by the
+ *     parameters, the parameter type names and the return type name (or
+ *     null), the lists as {@code String[]}; the statements.</li>
+ *     <li>{@link #EXPRESSION_STATEMENT}, {@link #RETURN}, {@link #GROUP}:
+ *     unused; the expression.</li>
+ *     <li>{@link #DECLARATION}: the pool index of the name, followed by the
+ *     type name (or null); the value, if any.</li>
+ *     <li>{@link #ASSIGNMENT}: unused; the receiver and the value.</li>
+ *     <li>{@link #IF}: the number of then statements; the condition, the
+ *     then statements and the else statements.</li>
+ *     <li>{@link #SWITCH}: unused; the condition and the cases.</li>
+ *     <li>{@link #CASE}: 1 if the case has a value, else 0 for the default;
+ *     the value, if any, and the statements.</li>
+ *     <li>{@link #WHILE}: unused; the condition and the statements.</li>
+ *     <li>{@link #ERROR}: the pool index of the {@link ParseException}; no
+ *     children.</li>
+ *     <li>{@link #LITERAL}: the pool index of the literal; no children.</li>
+ *     <li>{@link #BINARY}: the pool index of the operator; the left and right
+ *     operands.</li>
+ *     <li>{@link #ACCESS}: the pool index of the name; the offset, if
+ *     any.</li>
+ *     <li>{@link #CALL}: the pool index of the name; the arguments.</li>
+ *     <li>{@link #LIST}: unused; the values.</li>
+ * </ul>
+ * Only the tree built by the parser is stored; whatever the {@link Analyzer}
+ * set on the nodes is not converted.
+ */
+public final class FlatAst {
+
+    public static final int SOURCE = 0;
+    public static final int GLOBAL = 1;
+    public static final int FUNCTION = 2;
+    public static final int EXPRESSION_STATEMENT = 3;
+    public static final int DECLARATION = 4;
+    public static final int ASSIGNMENT = 5;
+    public static final int IF = 6;
+    public static final int SWITCH = 7;
+    public static final int CASE = 8;
+    public static final int WHILE = 9;
+    public static final int RETURN = 10;
+    public static final int ERROR = 11;
+    public static final int LITERAL = 12;
+    public static final int GROUP = 13;
+    public static final int BINARY = 14;
+    public static final int ACCESS = 15;
+    public static final int CALL = 16;
+    public static final int LIST = 17;
+
+    private final int size;
+    private final int[] kinds;
+    private final int[] values;
+    private final int[] starts;
+    private final int[] counts;
+    private final int[] children;
+    private final Object[] pool;
+
+    private FlatAst(int size, int[] kinds, int[] values, int[] starts, int[] counts, int[] children, Object[] pool) {
+        this.size = size;
+        this.kinds = kinds;
+        this.values = values;
+        this.starts = starts;
+        this.counts = counts;
+        this.children = children;
+        this.pool = pool;
+    }
+
+    /**
+     * Converts a tree, with the given node as the root.
+     */
+    public static FlatAst of(Ast ast) {
+        Builder builder = new Builder();
+        builder.visit(ast);
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getKind(int node) {
+        return kinds[node];
+    }
+
+    public int getValue(int node) {
+        return values[node];
+    }
+
+    public int getChildCount(int node) {
+        return counts[node];
+    }
+
+    public int getChild(int node, int index) {
+        if (index < 0 || index >= counts[node]) {
+            throw new IndexOutOfBoundsException("Node " + node + " has no child " + index + ".");
+        }
+        return children[starts[node] + index];
+    }
+
+    /**
+     * Returns the entry of the pool at the given index, usually the value of
+     * a node or the entries following it.
+     */
+    public Object getPool(int index) {
+        return pool[index];
+    }
+
+    /**
+     * Computes a result for every node from the results of its children,
+     * returning that of the root. Since children always follow their
+     * parent, this is a single pass from the last node to the first, without
+     * recursion however deep the tree.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T visit(Visitor<T> visitor) {
+        Object[] results = new Object[size];
+        for (int node = size - 1; node >= 0; node--) {
+            Object[] arguments = new Object[counts[node]];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = results[children[starts[node] + i]];
+                // each result is only needed by its parent
+                results[children[starts[node] + i]] = null;
+            }
+            results[node] = visitor.visit(this, node, (List<T>) Arrays.asList(arguments));
+        }
+        return (T) results[0];
+    }
+
+    /**
+     * Converts the tree back to {@link Ast} nodes, equal to those it was
+     * created from.
+     */
+    public Ast toAst() {
+        return visit(FlatAst::toAst);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Ast toAst(FlatAst tree, int node, List<Ast> children) {
+        int value = tree.values[node];
+        switch (tree.kinds[node]) {
+            case SOURCE:
+                return new Ast.Source((List<Ast.Global>) (List<?>) new ArrayList<>(children.subList(0, value)),
+                        (List<Ast.Function>) (List<?>) new ArrayList<>(children.subList(value, children.size())));
+            case GLOBAL:
+                return new Ast.Global((String) tree.pool[value], (String) tree.pool[value + 1], (Boolean) tree.pool[value + 2],
+                        optional(children, 0));
+            case FUNCTION:
+                return new Ast.Function((String) tree.pool[value], new ArrayList<>(Arrays.asList((String[]) tree.pool[value + 1])),
+                        new ArrayList<>(Arrays.asList((String[]) tree.pool[value + 2])),
+                        Optional.ofNullable((String) tree.pool[value + 3]), list(children, 0));
+            case EXPRESSION_STATEMENT:
+                return new Ast.Statement.Expression((Ast.Expression) children.get(0));
+            case DECLARATION:
+                return new Ast.Statement.Declaration((String) tree.pool[value], Optional.ofNullable((String) tree.pool[value + 1]),
+                        optional(children, 0));
+            case ASSIGNMENT:
+                return new Ast.Statement.Assignment((Ast.Expression) children.get(0), (Ast.Expression) children.get(1));
+            case IF:
+                return new Ast.Statement.If((Ast.Expression) children.get(0),
+                        new ArrayList<>((List<Ast.Statement>) (List<?>) children.subList(1, 1 + value)), list(children, 1 + value));
+            case SWITCH:
+                return new Ast.Statement.Switch((Ast.Expression) children.get(0), list(children, 1));
+            case CASE:
+                return new Ast.Statement.Case(value == 1 ? Optional.of((Ast.Expression) children.get(0)) : Optional.empty(),
+                        list(children, value));
+            case WHILE:
+                return new Ast.Statement.While((Ast.Expression) children.get(0), list(children, 1));
+            case RETURN:
+                return new Ast.Statement.Return((Ast.Expression) children.get(0));
+            case ERROR:
+                return new Ast.Statement.Error((ParseException) tree.pool[value]);
+            case LITERAL:
+                return new Ast.Expression.Literal(tree.pool[value]);
+            case GROUP:
+                return new Ast.Expression.Group((Ast.Expression) children.get(0));
+            case BINARY:
+                return new Ast.Expression.Binary((String) tree.pool[value], (Ast.Expression) children.get(0), (Ast.Expression) children.get(1));
+            case ACCESS:
+                return new Ast.Expression.Access(optional(children, 0), (String) tree.pool[value]);
+            case CALL:
+                return new Ast.Expression.Function((String) tree.pool[value], list(children, 0));
+            case LIST:
+                return new Ast.Expression.PlcList(list(children, 0));
+            default:
+                throw new AssertionError("Unknown kind " + tree.kinds[node] + ".");
+        }
+    }
+
+    /**
+     * Returns the children from the given index on as a new list.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Ast> List<T> list(List<Ast> children, int from) {
+        return new ArrayList<>((List<T>) (List<?>) children.subList(from, children.size()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Ast> Optional<T> optional(List<Ast> children, int index) {
+        return index < children.size() ? Optional.of((T) children.get(index)) : Optional.empty();
+    }
+
+    /**
+     * Computes a result for a node of a {@link FlatAst} from the results of
+     * its children, for {@link #visit(Visitor)}.
+     */
+    @FunctionalInterface
+    public interface Visitor<T> {
+
+        T visit(FlatAst ast, int node, List<T> children);
+
+    }
+
+    /**
+     * Converts an {@link Ast} by visiting it, adding each node before its
+     * children and its range of children after them, so the children of a
+     * node are stored together.
+     */
+    private static final class Builder implements Ast.Visitor<Integer> {
+
+        private int size = 0;
+        private int[] kinds = new int[64];
+        private int[] values = new int[64];
+        private int[] starts = new int[64];
+        private int[] counts = new int[64];
+        private int length = 0;
+        private int[] children = new int[64];
+        private final List<Object> pool = new ArrayList<>();
+        private final Map<Object, Integer> indices = new HashMap<>();
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            int node = add(SOURCE, ast.getGlobals().size());
+            return children(node, list(ast.getGlobals()), list(ast.getFunctions()));
+        }
+
+        @Override
+        public Integer visit(Ast.Global ast) {
+            int node = add(GLOBAL, pool(ast.getName(), ast.getTypeName(), ast.getMutable()));
+            return children(node, optional(ast.getValue()));
+        }
+
+        @Override
+        public Integer visit(Ast.Function ast) {
+            int node = add(FUNCTION, pool(ast.getName(), ast.getParameters().toArray(new String[0]),
+                    ast.getParameterTypeNames().toArray(new String[0]), ast.getReturnTypeName().orElse(null)));
+            return children(node, list(ast.getStatements()));
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Expression ast) {
+            int node = add(EXPRESSION_STATEMENT, 0);
+            return children(node, new int[] {visit(ast.getExpression())});
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Declaration ast) {
+            int node = add(DECLARATION, pool(ast.getName(), ast.getTypeName().orElse(null)));
+            return children(node, optional(ast.getValue()));
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Assignment ast) {
+            int node = add(ASSIGNMENT, 0);
+            int receiver = visit(ast.getReceiver());
+            return children(node, new int[] {receiver, visit(ast.getValue())});
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.If ast) {
+            int node = add(IF, ast.getThenStatements().size());
+            int condition = visit(ast.getCondition());
+            return children(node, new int[] {condition}, list(ast.getThenStatements()), list(ast.getElseStatements()));
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Switch ast) {
+            int node = add(SWITCH, 0);
+            int condition = visit(ast.getCondition());
+            return children(node, new int[] {condition}, list(ast.getCases()));
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Case ast) {
+            int node = add(CASE, ast.getValue().isPresent() ? 1 : 0);
+            int[] value = optional(ast.getValue());
+            return children(node, value, list(ast.getStatements()));
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.While ast) {
+            int node = add(WHILE, 0);
+            int condition = visit(ast.getCondition());
+            return children(node, new int[] {condition}, list(ast.getStatements()));
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Return ast) {
+            int node = add(RETURN, 0);
+            return children(node, new int[] {visit(ast.getValue())});
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Error ast) {
+            int node = add(ERROR, pool(ast.getException()));
+            return children(node);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Literal ast) {
+            int node = add(LITERAL, pool(ast.getLiteral()));
+            return children(node);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Group ast) {
+            int node = add(GROUP, 0);
+            return children(node, new int[] {visit(ast.getExpression())});
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Binary ast) {
+            int node = add(BINARY, pool(ast.getOperator()));
+            int left = visit(ast.getLeft());
+            return children(node, new int[] {left, visit(ast.getRight())});
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Access ast) {
+            int node = add(ACCESS, pool(ast.getName()));
+            return children(node, optional(ast.getOffset()));
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Function ast) {
+            int node = add(CALL, pool(ast.getName()));
+            return children(node, list(ast.getArguments()));
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.PlcList ast) {
+            int node = add(LIST, 0);
+            return children(node, list(ast.getValues()));
+        }
+
+        private int add(int kind, int value) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            kinds[size] = kind;
+            values[size] = value;
+            return size++;
+        }
+
+        /**
+         * Stores the children of the node, given in groups, after those of
+         * every node added before.
+         */
+        private int children(int node, int[]... groups) {
+            starts[node] = length;
+            for (int[] group : groups) {
+                if (length + group.length > children.length) {
+                    children = Arrays.copyOf(children, Math.max(children.length * 2, length + group.length));
+                }
+                System.arraycopy(group, 0, children, length, group.length);
+                length += group.length;
+            }
+            counts[node] = length - starts[node];
+            return node;
+        }
+
+        private int[] list(List<? extends Ast> asts) {
+            int[] nodes = new int[asts.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = visit(asts.get(i));
+            }
+            return nodes;
+        }
+
+        private int[] optional(Optional<? extends Ast> ast) {
+            return ast.isPresent() ? new int[] {visit(ast.get())} : new int[0];
+        }
+
+        /**
+         * Adds the entries to the pool, returning the index of the first.
+         * A single entry already in the pool is shared, which is the case
+         * for repeated names, operators and literals.
+         */
+        private int pool(Object... entries) {
+            if (entries.length == 1 && entries[0] != null) {
+                Integer index = indices.get(entries[0]);
+                if (index != null) {
+                    return index;
+                }
+                indices.put(entries[0], pool.size());
+            }
+            pool.addAll(Arrays.asList(entries));
+            return pool.size() - entries.length;
+        }
+
+        private FlatAst build() {
+            return new FlatAst(size, Arrays.copyOf(kinds, size), Arrays.copyOf(values, size), Arrays.copyOf(starts, size),
+                    Arrays.copyOf(counts, size), Arrays.copyOf(children, length), pool.toArray());
+        }
+
+    }
+
+}
@@ -349,93 +349,29 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 return Environment.create(true);
             }
         }
-        // Evaluating the '+'
-        else if (astOP.equals("+")) {
-            if ((visit(ast.getLeft()).getValue() instanceof String) || (visit(ast.getRight()).getValue() instanceof String)) {
-                // if either side is a string then it's concat operation
-                String LHS = visit(ast.getLeft()).getValue().toString();
-                String RHS = visit(ast.getRight()).getValue().toString();
-                String result = LHS.concat(RHS);
-                return Environment.create(result);
-            }
-            else if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
+        // Evaluating + - * /, with each operand evaluated once
+        else if (astOP.equals("+") || astOP.equals("-") || astOP.equals("*") || astOP.equals("/")) {
+            Object left = visit(ast.getLeft()).getValue();
+            Object right = visit(ast.getRight()).getValue();
+            // if either side of a + is a string then it's concat operation
+            if (astOP.equals("+") && (left instanceof String || right instanceof String)) {
+                return Environment.create(left.toString().concat(right.toString()));
+            }
+            else if (left instanceof BigDecimal) {
                 // if left is bigDecimal, then make sure that right is also same type
-                BigDecimal LHS = requireType(BigDecimal.class, visit(ast.getLeft()));
-                BigDecimal RHS = requireType(LHS.getClass(), visit(ast.getRight()));
-                BigDecimal result = LHS.add(RHS);
-                return Environment.create(result);
+                BigDecimal RHS = requireValue(BigDecimal.class, right);
+                return Environment.create(decimal(astOP, (BigDecimal) left, RHS));
             }
-            else if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
+            else if (left instanceof BigInteger) {
                 // if left is bigInteger, then make sure that right is also same type
-                BigInteger LHS = requireType(BigInteger.class, visit(ast.getLeft()));
-                BigInteger RHS = requireType(LHS.getClass(), visit(ast.getRight()));
-                BigInteger result = LHS.add(RHS);
-                return Environment.create(result);
+                BigInteger RHS = requireValue(BigInteger.class, right);
+                return Environment.create(integer(astOP, (BigInteger) left, RHS));
             }
             // otherwise, throw an exception
             else {
                 throw new RuntimeException("Left Side is neither of type String, BigInteger, nor Decimal");
             }
         }
-        // Evaluating the '-' and '*'
-        else if (astOP.equals("-") || astOP.equals("*")) {
-            if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
-                // if left is bigDecimal, then make sure that right is also same type
-                BigDecimal LHS = requireType(BigDecimal.class, visit(ast.getLeft()));
-                BigDecimal RHS = requireType(LHS.getClass(), visit(ast.getRight()));
-                BigDecimal result;
-                if (astOP.equals("-")) {
-                    result = LHS.subtract(RHS);
-                }
-                 // if not - it's *
-                else {
-                    // Making sure the multiplication stays at tenths after decimal
-                    result = LHS.multiply(RHS);
-                }
-                return Environment.create(result);
-            }
-            else if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
-                // if left is bigInteger, then make sure that right is also same type
-                BigInteger LHS = requireType(BigInteger.class, visit(ast.getLeft()));
-                BigInteger RHS = requireType(LHS.getClass(), visit(ast.getRight()));
-                BigInteger result;
-                if (astOP.equals("-")) {
-                    result = LHS.subtract(RHS);
-                }
-                // if not - it's *
-                else {
-                    result = LHS.multiply(RHS);
-                }
-                return Environment.create(result);
-            }
-            else {
-                throw new RuntimeException("Left Hand Side is Neither of Type BigInteger nor BigDecimal");
-            }
-        }
-        // Evaluating the '/'
-        else if (astOP.equals("/")) {
-            if (visit(ast.getLeft()).getValue() instanceof BigDecimal) {
-                BigDecimal LHS = requireType(BigDecimal.class, visit(ast.getLeft()));
-                BigDecimal RHS = requireType(LHS.getClass(), visit(ast.getRight()));
-                if (RHS.signum() == 0) {
-                    throw new RuntimeException("Denominator cannot be zero!");
-                }
-                BigDecimal result = LHS.divide(RHS, RoundingMode.HALF_EVEN);
-                return Environment.create(result);
-            }
-            else if (visit(ast.getLeft()).getValue() instanceof BigInteger) {
-                BigInteger LHS = requireType(BigInteger.class, visit(ast.getLeft()));
-                BigInteger RHS = requireType(LHS.getClass(), visit(ast.getRight()));
-                if (RHS.signum() == 0) {
-                    throw new RuntimeException("Denominator cannot be zero!");
-                }
-                BigInteger result = LHS.divide(RHS);
-                return Environment.create(result);
-            }
-            else {
-                throw new RuntimeException("Left Hand Side is not of type BigInteger nor BigDecimal");
-            }
-        }
         // Evaluating the ^
         else if (astOP.equals("^")) {
             // Making sure that the exponent is BigInteger
@@ -553,14 +489,91 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return Environment.create(result);
     }
 
+    /**
+     * Evaluates + - * / on integers. Values which fit in a long are computed
+     * with long arithmetic, and only fall back to BigInteger on overflow.
+     */
+    private static BigInteger integer(String operator, BigInteger left, BigInteger right) {
+        if (operator.equals("/") && right.signum() == 0) {
+            throw new RuntimeException("Denominator cannot be zero!");
+        }
+        if (left.bitLength() < Long.SIZE && right.bitLength() < Long.SIZE) {
+            long a = left.longValue();
+            long b = right.longValue();
+            try {
+                switch (operator) {
+                    case "+": return valueOf(Math.addExact(a, b));
+                    case "-": return valueOf(Math.subtractExact(a, b));
+                    case "*": return valueOf(Math.multiplyExact(a, b));
+                    default:
+                        // the only overflowing division is Long.MIN_VALUE / -1
+                        if (a != Long.MIN_VALUE || b != -1) {
+                            return valueOf(a / b);
+                        }
+                }
+            } catch (ArithmeticException e) {
+                // overflowed a long, so use BigInteger below
+            }
+        }
+        switch (operator) {
+            case "+": return left.add(right);
+            case "-": return left.subtract(right);
+            case "*": return left.multiply(right);
+            default: return left.divide(right);
+        }
+    }
+
+    /**
+     * Evaluates + - * / on decimals. BigDecimal already keeps values with
+     * up to 18 digits as a long internally, so there is no separate path.
+     */
+    private static BigDecimal decimal(String operator, BigDecimal left, BigDecimal right) {
+        switch (operator) {
+            case "+": return left.add(right);
+            case "-": return left.subtract(right);
+            case "*": return left.multiply(right);
+            default:
+                if (right.signum() == 0) {
+                    throw new RuntimeException("Denominator cannot be zero!");
+                }
+                return left.divide(right, RoundingMode.HALF_EVEN);
+        }
+    }
+
+    /**
+     * Returns the BigInteger for a long, shared for values in [-128, 1024)
+     * such as small loop counters. Any other result still allocates a new
+     * BigInteger, as values are BigInteger outside of this class; the long
+     * arithmetic only avoids the big arithmetic (see InterpreterBenchmark).
+     */
+    private static BigInteger valueOf(long value) {
+        if (value >= -INTEGER_CACHE_LOW && value < INTEGER_CACHE.length - INTEGER_CACHE_LOW) {
+            return INTEGER_CACHE[(int) value + INTEGER_CACHE_LOW];
+        }
+        return BigInteger.valueOf(value);
+    }
+
+    private static final int INTEGER_CACHE_LOW = 128;
+    private static final BigInteger[] INTEGER_CACHE = new BigInteger[INTEGER_CACHE_LOW + 1024];
+
+    static {
+        for (int i = 0; i < INTEGER_CACHE.length; i++) {
+            INTEGER_CACHE[i] = BigInteger.valueOf(i - INTEGER_CACHE_LOW);
+        }
+    }
+
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
     private static <T> T requireType(Class<T> type, Environment.PlcObject object) {
-        if (type.isInstance(object.getValue())) {
-            return type.cast(object.getValue());
+        return requireValue(type, object.getValue());
+    }
+
+    private static <T> T requireValue(Class<T> type, Object value) {
+        if (type.isInstance(value)) {
+            return type.cast(value);
         } else {
-            throw new RuntimeException("Expected type " + type.getName() + ", received " + object.getValue().getClass().getName() + ".");
+            throw new RuntimeException("Expected type " + type.getName() + ", received " + value.getClass().getName() + ".");
         }
     }
 
@@ -1,7 +1,24 @@
 package plc.project;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * The lexer works through three main functions:
@@ -14,73 +31,559 @@ import java.util.List;
  * should throw a {@link ParseException} with an index at the character which is
  * invalid.
  *
- * The {@link #peek(String...)} and {@link #match(String...)} functions are * helpers you need to use, they will make the implementation a lot easier. */
-public final class Lexer {
+ * Characters are classified through a precomputed table ({@link #CLASSES})
+ * instead of regex, so the lexing loop does not allocate per character. The
+ * regex based {@link #peek(String...)} and {@link #match(String...)} helpers
+ * are still available but are not used on the hot path.
+ *
+ * Each lex method only advances the {@link CharStream}; the token literal is
+ * sliced out of the input once by {@link CharStream#emit(Token.Type)}.
+ *
+ * The lexer is also an {@link Iterator} over its tokens, so consumers such as
+ * the {@link Parser} can pull tokens one at a time with {@link #next()}
+ * instead of collecting the whole file with {@link #lex()} first.
+ *
+ * Runs of whitespace and the tail of identifiers are scanned in bulk by
+ * {@link CharStream#advanceWhile(int)}. How depends on the input: a
+ * memory-mapped ASCII file is scanned eight bytes at a time (see {@link
+ * AsciiSequence#scan(int, int)}), while any other in-memory source is copied
+ * into a char array by {@link #lex()} and {@link #lexBuffer()} and scanned
+ * with a loop over the array. A reader, or a source whose tokens are pulled
+ * with {@link #next()}, is still scanned a character at a time through the
+ * stream. Bulk scanning is enabled by default and can be turned off with the
+ * {@code plc.lexer.bulkScan} system property, in which case every character
+ * goes through the stream one at a time.
+ *
+ * In recovery mode ({@link #setRecovering(boolean)}) lexical errors do not
+ * stop the lexer: each one is recorded in {@link #getErrors()}, the bad text
+ * is skipped up to the next whitespace or quote boundary and lexing goes on,
+ * so a single pass reports every error in the source.
+ */
+public final class Lexer implements Iterator<Token> {
 
     private final CharStream chars;
-    private boolean checkRange(int type, String number) {
-        // if type = 1, then check for Integer if it's in range of Long
-        if (type == 1) {
-            String longMax = String.valueOf(Long.MAX_VALUE);
-            // if the string size is >, then it's out of range
-            if (number.length() > longMax.length()) {
+    public Lexer(CharSequence input) {
+        chars = new CharStream(input);
+    }
+
+    /**
+     * Creates a lexer reading from the given reader through a sliding window,
+     * so the source never has to be held in memory as a whole. Wrap an
+     * {@link java.io.InputStream} in an {@link java.io.InputStreamReader}.
+     */
+    public Lexer(Reader reader) {
+        chars = new CharStream(reader);
+    }
+
+    /**
+     * Creates a lexer over a memory-mapped file. Pure ASCII files are read
+     * directly from the mapped bytes; anything else is decoded as UTF-8.
+     */
+    public static Lexer fromFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) < 0) {
+                    return new Lexer(StandardCharsets.UTF_8.decode(buffer));
+                }
+            }
+            return new Lexer(new AsciiSequence(buffer));
+        }
+    }
+    // character classes used by the lexer, combined as bit flags in CLASSES
+    private static final int WHITESPACE = 1;
+    private static final int IDENTIFIER_START = 2;
+    private static final int IDENTIFIER_PART = 4;
+    private static final int DIGIT = 8;
+    private static final int ESCAPE = 16;
+
+    /**
+     * Precomputed character classes for the ASCII range, indexed by the
+     * character itself. Characters outside of the table belong to no class,
+     * so they can only appear as operators or inside strings and characters.
+     */
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c : new char[] {' ', '\n', '\b', '\r', '\t'}) {
+            CLASSES[c] |= WHITESPACE;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] |= IDENTIFIER_START | IDENTIFIER_PART;
+            CLASSES[Character.toUpperCase(c)] |= IDENTIFIER_START | IDENTIFIER_PART;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= DIGIT | IDENTIFIER_PART;
+        }
+        CLASSES['@'] |= IDENTIFIER_START;
+        CLASSES['_'] |= IDENTIFIER_PART;
+        CLASSES['-'] |= IDENTIFIER_PART;
+        for (char c : new char[] {'b', 'n', 'r', 't', '\'', '"', '\\'}) {
+            CLASSES[c] |= ESCAPE;
+        }
+    }
+
+    /**
+     * Keywords grouped by length and single character operators indexed by
+     * character, so the kind of a token can be found without creating its
+     * literal. Tokens of a known kind share the kind's canonical literal.
+     */
+    private static final Token.Kind[][] KEYWORDS = new Token.Kind[8][0];
+    private static final Token.Kind[] OPERATORS = new Token.Kind[128];
+
+    static {
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (kind.getType() == Token.Type.IDENTIFIER) {
+                Token.Kind[] keywords = KEYWORDS[kind.getLiteral().length()];
+                keywords = Arrays.copyOf(keywords, keywords.length + 1);
+                keywords[keywords.length - 1] = kind;
+                KEYWORDS[kind.getLiteral().length()] = keywords;
+            }
+            else if (kind.getType() == Token.Type.OPERATOR && kind.getLiteral().length() == 1) {
+                OPERATORS[kind.getLiteral().charAt(0)] = kind;
+            }
+        }
+    }
+
+    /**
+     * Whether new lexers scan whitespace and identifiers in bulk.
+     */
+    private static final boolean BULK_SCAN = Boolean.parseBoolean(System.getProperty("plc.lexer.bulkScan", "true"));
+
+    private boolean bulkScan = BULK_SCAN;
+
+    private boolean recovering = false;
+    private final List<ParseException> errors = new ArrayList<>();
+    private final LineTable lines = new LineTable();
+
+    /**
+     * Set for lexers started in the middle of a source, whose line table is
+     * missing the lines before the start.
+     */
+    private boolean partial = false;
+    private LexerListener listener;
+
+    /**
+     * The type of the token scanned ahead by {@link #hasNext()} in recovery
+     * mode, which has not been emitted yet.
+     */
+    private Token.Type pending;
+
+    /**
+     * The kind of the token being scanned, which is reset once it is emitted.
+     */
+    private Token.Kind kind = Token.Kind.NONE;
+
+    /**
+     * The value of the number being scanned, accumulated digit by digit as
+     * an unscaled long and a scale, unless it overflowed. Strings only track
+     * whether they contain an escape, so those without one are never
+     * rescanned.
+     */
+    private long unscaled;
+    private int scale;
+    private boolean overflow;
+    private boolean escaped;
+
+    /**
+     * Enables or disables bulk scanning for this lexer, overriding the
+     * {@code plc.lexer.bulkScan} system property. The tokens are the same
+     * either way.
+     */
+    void setBulkScan(boolean bulkScan) {
+        this.bulkScan = bulkScan;
+    }
+
+    /**
+     * Enables or disables recovery mode, in which lexical errors are
+     * collected into {@link #getErrors()} instead of thrown.
+     */
+    public void setRecovering(boolean recovering) {
+        this.recovering = recovering;
+    }
+
+    /**
+     * Returns the errors recorded so far in recovery mode, in source order.
+     */
+    public List<ParseException> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Sets the listener notified of each token scanned, or null (the
+     * default) for none.
+     */
+    public void setListener(LexerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the line table of the source lexed so far, which covers the
+     * whole source once all tokens have been lexed.
+     */
+    public LineTable getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns true if the character belongs to the given character class.
+     */
+    private static boolean is(char c, int type) {
+        return c < CLASSES.length && (CLASSES[c] & type) != 0;
+    }
+
+    /**
+     * Returns true if there is a character at the given offset and it belongs
+     * to the given character class.
+     */
+    private boolean peekClass(int offset, int type) {
+        return chars.has(offset) && is(chars.get(offset), type);
+    }
+
+    /**
+     * Repeatedly lexes the input using {@link #lexToken()}, also skipping over
+     * whitespace where appropriate.
+     */
+    public List<Token> lex() {
+        if (bulkScan) {
+            chars.load();
+        }
+        List<Token> tokens = new ArrayList<>();
+        while (hasNext()) {
+            tokens.add(emit(scanNext()));
+        }
+        return tokens;
+    }
+
+    /**
+     * Skips over any whitespace and returns true if there is another token
+     * to lex.
+     */
+    @Override
+    public boolean hasNext() {
+        if (pending != null) {
+            return true;
+        }
+        skipWhitespace();
+        // in recovery mode, scan ahead so errors are skipped instead of thrown
+        while (recovering && chars.has(0)) {
+            try {
+                pending = scanListened();
                 return true;
+            } catch (ParseException e) {
+                errors.add(e);
+                resync();
+                skipWhitespace();
             }
-            else if (number.length() < longMax.length()) {
-                return false;
+        }
+        return chars.has(0);
+    }
+
+    /**
+     * Skips over whitespace, recording the start of each line in the line
+     * table (newlines cannot appear anywhere else in a valid source).
+     */
+    private void skipWhitespace() {
+        if (bulkScan) {
+            chars.advanceWhile(WHITESPACE);
+            // the skipped whitespace is still buffered until the skip
+            for (int offset = -chars.length; offset < 0; offset++) {
+                if (chars.get(offset) == '\n') {
+                    lines.addLine(chars.index + offset + 1);
+                }
+            }
+            chars.skip();
+        }
+        else {
+            while (chars.has(0) && is(chars.get(0), WHITESPACE)) {
+                if (chars.get(0) == '\n') {
+                    lines.addLine(chars.index + 1);
+                }
+                chars.advance();
+                chars.skip();
+            }
+        }
+    }
+
+    /**
+     * Scans the next token, or takes the one already scanned by {@link
+     * #hasNext()} in recovery mode.
+     */
+    private Token.Type scanNext() {
+        Token.Type type = pending != null ? pending : scanListened();
+        pending = null;
+        return type;
+    }
+
+    /**
+     * Scans the next token, timing it for the listener if there is one.
+     */
+    private Token.Type scanListened() {
+        long start = listener != null ? System.nanoTime() : 0;
+        try {
+            Token.Type type = scanToken();
+            if (listener != null) {
+                listener.onToken(type, chars.index - chars.length, chars.length, System.nanoTime() - start);
             }
-            // else loop through the Strings and compare each number from left to right
-            for (int i = 0; i < number.length(); ++i) {
-                if ((int) number.charAt(i) > (int) longMax.charAt(i)) {
-                    return true;
+            return type;
+        } catch (ParseException e) {
+            // newlines are only skipped as whitespace, so the lines up to the error are recorded
+            e.locate(partial ? LineTable.of(chars.input) : lines);
+            if (listener != null) {
+                listener.onError(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts lexing at the given index of an in-memory source rather than at
+     * its start. The line table then misses the lines before the index, so
+     * errors are located by scanning the source instead.
+     */
+    private void startAt(int index) {
+        chars.index = index;
+        partial = index > 0;
+    }
+
+    /**
+     * Skips the text of a token which failed to lex. A string or character
+     * is skipped past its closing quote (or up to the end of the line), and
+     * anything else up to the next whitespace or quote.
+     */
+    private void resync() {
+        chars.index -= chars.length;
+        chars.skip();
+        kind = Token.Kind.NONE;
+        char first = chars.get(0);
+        chars.advance();
+        if (first == '"' || first == '\'') {
+            while (chars.has(0) && chars.get(0) != first && chars.get(0) != '\n') {
+                if (chars.get(0) == '\\' && chars.has(1) && chars.get(1) != '\n') {
+                    chars.advance();
                 }
+                chars.advance();
+            }
+            if (chars.has(0) && chars.get(0) == first) {
+                chars.advance();
             }
         }
-        // if type = 2, then check for Decimal if it's in range of Integer
         else {
-            String intMax = String.valueOf(Integer.MAX_VALUE);
-            // if the string size is >, then it's out of range
-            if (number.length() > intMax.length()) {
-                return true;
+            while (chars.has(0) && !is(chars.get(0), WHITESPACE) && chars.get(0) != '"' && chars.get(0) != '\'') {
+                chars.advance();
             }
-            else if (number.length() < intMax.length()) {
-                return false;
+        }
+        chars.skip();
+    }
+
+    /**
+     * Lexes and returns the next token, skipping any whitespace before it.
+     */
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No tokens remaining");
+        }
+        return emit(scanNext());
+    }
+
+    /**
+     * Re-lexes the source after an edit, reusing the tokens of the previous
+     * source outside of the edited window. The edit replaced removedLength
+     * characters at offset with insertedLength characters, and source is the
+     * text after the edit.
+     *
+     * Lexing restarts one token before the first token touching the edit, as
+     * lexing a token may look one character past its end. Since lexing from a
+     * token start only depends on the text that follows, it stops as soon as
+     * a new token starts past the edit at the same place as a previous token,
+     * and the remaining previous tokens are reused with their index shifted.
+     */
+    public static List<Token> relex(CharSequence source, List<Token> previous, int offset, int removedLength, int insertedLength) {
+        int delta = insertedLength - removedLength;
+        // binary search for the first token ending at or after the edit
+        int low = 0;
+        int high = previous.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Token token = previous.get(middle);
+            if (token.getIndex() + token.getLiteral().length() < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
-            // else loop through the Strings and compare each number from left to right
-            for (int i = 0; i < number.length(); ++i) {
-                // if the current character is a period, then skip it
-                if (number.charAt(i) == '.') {
-                    continue;
+        }
+        int restart = Math.max(0, low - 1);
+        List<Token> tokens = new ArrayList<>(previous.subList(0, restart));
+        Lexer lexer = new Lexer(source);
+        lexer.startAt(low > 0 ? previous.get(restart).getIndex() : 0);
+        int next = restart;
+        while (lexer.hasNext()) {
+            int start = lexer.chars.index;
+            if (start >= offset + insertedLength) {
+                // find the previous token starting at the same place, if any
+                while (next < previous.size() && previous.get(next).getIndex() + delta < start) {
+                    next++;
                 }
-                if ((int) number.charAt(i) > (int) intMax.charAt(i)) {
-                    return true;
+                if (next < previous.size() && previous.get(next).getIndex() + delta == start) {
+                    for (Token token : previous.subList(next, previous.size())) {
+                        tokens.add(new Token(token.getType(), token.getKind(), token.getLiteral(), token.getIndex() + delta));
+                    }
+                    return tokens;
                 }
             }
+            tokens.add(lexer.lexToken());
         }
-        return false;
+        return tokens;
     }
 
-    public Lexer(String input) {
-        chars = new CharStream(input);
+    /**
+     * Lexes the source in parallel on the given pool, producing the same
+     * tokens as {@link #lex()}. Small sources are lexed sequentially.
+     */
+    public static List<Token> lexParallel(CharSequence source, ForkJoinPool pool) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, source.length() / (4 * pool.getParallelism()) + 1);
+        return lexParallel(source, pool, chunkSize);
     }
-    List<Token> tokenList = new ArrayList<Token>();
-    private static final String whiteSpace = new String(new char[] {'\n', '\b', '\r', '\t', ' '});
+
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int NEWLINE_WINDOW = 4096;
+
     /**
-     * Repeatedly lexes the input using {@link #lexToken()}, also skipping over
-     * whitespace where appropriate.
+     * Splits the source into chunks of about chunkSize characters and lexes
+     * each on the pool, then stitches the chunks together in order.
+     *
+     * Chunks are split at whitespace, preferring a newline since no token
+     * can contain one. Any other whitespace may be inside of a string or
+     * character literal, so chunks are lexed speculatively: while stitching,
+     * if the previous chunk's last token ran past the start of a chunk, that
+     * chunk is re-lexed from the end of the token until it lines up with a
+     * token start of the speculative result again. Errors found while lexing
+     * a chunk are only thrown once the chunk is known to be lexed correctly.
      */
-    public List<Token> lex() {
-        while(chars.has(0)) {
-            // skip over white space
-            if (peek("[ \n\b\r\t]")) {
-                chars.advance();
-                chars.skip();
+    static List<Token> lexParallel(CharSequence source, ForkJoinPool pool, int chunkSize) {
+        List<Integer> splits = new ArrayList<>();
+        splits.add(0);
+        int split = chunkSize;
+        while (split < source.length()) {
+            int newline = split;
+            while (newline < source.length() && newline < split + NEWLINE_WINDOW && source.charAt(newline) != '\n') {
+                newline++;
+            }
+            if (newline < source.length() && source.charAt(newline) == '\n') {
+                split = newline;
+            } else {
+                while (split < source.length() && !is(source.charAt(split), WHITESPACE)) {
+                    split++;
+                }
+            }
+            if (split < source.length()) {
+                splits.add(split);
+            }
+            split += chunkSize;
+        }
+        splits.add(source.length());
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < splits.size(); i++) {
+            int start = splits.get(i);
+            int end = splits.get(i + 1);
+            tasks.add(pool.submit(() -> Chunk.lex(source, start, end)));
+        }
+        List<Token> tokens = new ArrayList<>();
+        int position = 0;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            if (position <= chunk.start) {
+                // the previous chunk ended before this one, so it lexed from a token boundary
+                tokens.addAll(chunk.tokens);
+                chunk.rethrow();
+                position = Math.max(position, chunk.position);
+                continue;
+            }
+            // the previous chunk's last token ran into this one, so re-lex until they line up
+            Lexer lexer = new Lexer(source);
+            lexer.startAt(position);
+            int next = 0;
+            while (lexer.hasNext() && lexer.chars.index < chunk.end) {
+                int start = lexer.chars.index;
+                while (next < chunk.tokens.size() && chunk.tokens.get(next).getIndex() < start) {
+                    next++;
+                }
+                if (next < chunk.tokens.size() && chunk.tokens.get(next).getIndex() == start) {
+                    tokens.addAll(chunk.tokens.subList(next, chunk.tokens.size()));
+                    chunk.rethrow();
+                    lexer.chars.index = chunk.position;
+                    break;
+                }
+                tokens.add(lexer.lexToken());
+            }
+            position = Math.max(position, lexer.chars.index);
+        }
+        return tokens;
+    }
+
+    /**
+     * The speculative result of lexing a chunk of the source: the tokens
+     * starting in the chunk, the position after the last of them, and the
+     * error which stopped lexing, if any.
+     */
+    private static final class Chunk {
+
+        private final int start;
+        private final int end;
+        private final List<Token> tokens = new ArrayList<>();
+        private int position;
+        private ParseException error = null;
+
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        private static Chunk lex(CharSequence source, int start, int end) {
+            Chunk chunk = new Chunk(start, end);
+            Lexer lexer = new Lexer(source);
+            lexer.startAt(start);
+            try {
+                while (lexer.hasNext() && lexer.chars.index < end) {
+                    chunk.tokens.add(lexer.lexToken());
+                    chunk.position = lexer.chars.index;
+                }
+            } catch (ParseException e) {
+                chunk.error = e;
             }
-            else {
-                tokenList.add(lexToken());
+            return chunk;
+        }
+
+        private void rethrow() {
+            if (error != null) {
+                throw error;
             }
         }
-        return tokenList;
+
+    }
+
+    /**
+     * Lexes the whole input into a {@link TokenBuffer}, which stores token
+     * types and offsets in arrays and slices literals out of the input only
+     * when they are requested. This requires an in-memory input.
+     */
+    public TokenBuffer lexBuffer() {
+        if (chars.input == null) {
+            throw new IllegalStateException("A token buffer requires an in-memory input.");
+        }
+        TokenBuffer buffer = new TokenBuffer(chars.input);
+        if (bulkScan) {
+            chars.load();
+        }
+        while (hasNext()) {
+            Token.Type type = scanNext();
+            buffer.add(type, kind, chars.index - chars.length, chars.index);
+            chars.skip();
+            kind = Token.Kind.NONE;
+        }
+        return buffer;
     }
 
     /**
@@ -92,212 +595,252 @@ public final class Lexer {
      * by {@link #lex()}
      */
     public Token lexToken() {
-        // delegate to the correct function based on what the 1st character is
-        char currentChar = chars.get(0);
+        return emit(scanNext());
+    }
+
+    public Token lexIdentifier() {
+        return emit(scanIdentifier());
+    }
 
-        // if it's ", then lex String
-        if (currentChar == '\"') {
-            return lexString();
+    public Token lexNumber() {
+        return emit(scanNumber());
+    }
+
+    public Token lexCharacter() {
+        return emit(scanCharacter());
+    }
+
+    public Token lexString() {
+        return emit(scanString());
+    }
+
+    public Token lexOperator() {
+        return emit(scanOperator());
+    }
+
+    /**
+     * Emits the token scanned so far. Literals carry their decoded value,
+     * which is created here from the state left by the scan methods.
+     */
+    private Token emit(Token.Type type) {
+        Token token;
+        if (type == Token.Type.IDENTIFIER || type == Token.Type.OPERATOR) {
+            token = chars.emit(type, kind);
+            kind = Token.Kind.NONE;
+            return token;
         }
-        // if it's ', then lex Character
-        else if (currentChar == '\'') {
-            return lexCharacter();
+        int start = chars.index - chars.length;
+        String literal = chars.slice();
+        Object value;
+        if (type == Token.Type.INTEGER) {
+            value = overflow ? new BigInteger(literal) : BigInteger.valueOf(unscaled);
+        } else if (type == Token.Type.DECIMAL) {
+            value = overflow ? new BigDecimal(literal) : BigDecimal.valueOf(unscaled, scale);
+        } else if (type == Token.Type.STRING && !escaped) {
+            value = literal.substring(1, literal.length() - 1);
+        } else {
+            value = decode(type, literal);
         }
-        // if it's equal to "-", but the next character is a number, or if it's a number, then lex Number
-        else if (((currentChar == '-') && (chars.has(1)) && (!Character.isWhitespace(chars.get(1)))) || (Character.isDigit(currentChar))) {
-            return lexNumber();
+        return new Token(type, Token.Kind.NONE, literal, start, value);
+    }
+
+    /**
+     * Decodes the value of a literal token from its text: a BigInteger,
+     * BigDecimal, Character or String with escapes resolved, or null for
+     * any other type. The lexer only uses this for characters and strings
+     * with escapes, but the parser falls back to it for tokens which were
+     * not created by the lexer.
+     */
+    static Object decode(Token.Type type, String literal) {
+        switch (type) {
+            case INTEGER:
+                return new BigInteger(literal);
+            case DECIMAL:
+                return new BigDecimal(literal);
+            case CHARACTER:
+                return unescape(literal).charAt(0);
+            case STRING:
+                return unescape(literal);
+            default:
+                return null;
         }
-        // If it's a letter without " or ', then lex Identifier
-        else if (peek("[A-Za-z@]")) {
-            return lexIdentifier();
+    }
+
+    /**
+     * Returns the contents of a quoted literal with its escapes resolved.
+     */
+    private static String unescape(String literal) {
+        StringBuilder builder = new StringBuilder(literal.length() - 2);
+        for (int i = 1; i < literal.length() - 1; i++) {
+            char c = literal.charAt(i);
+            if (c == '\\' && i + 1 < literal.length() - 1) {
+                c = literal.charAt(++i);
+                switch (c) {
+                    case 'b': c = '\b'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    default: break;
+                }
+            }
+            builder.append(c);
         }
-        // else lex the operator
-        else {
-            return lexOperator();
+        return builder.toString();
+    }
+
+    /*
+     * The scan methods below advance the char stream over a single token and
+     * return its type, leaving the token itself to be emitted by the caller.
+     */
+
+    private Token.Type scanToken() {
+        // delegate to the correct function based on what the 1st character is
+        char currentChar = chars.get(0);
+        switch (currentChar) {
+            // if it's ", then lex String
+            case '"':
+                return scanString();
+            // if it's ', then lex Character
+            case '\'':
+                return scanCharacter();
+            // a - is only part of a number if a digit follows it
+            case '-':
+                return peekClass(1, DIGIT) ? scanNumber() : scanOperator();
+            default:
+                if (is(currentChar, DIGIT)) {
+                    return scanNumber();
+                }
+                else if (is(currentChar, IDENTIFIER_START)) {
+                    return scanIdentifier();
+                }
+                return scanOperator();
         }
     }
     // DONE
-    public Token lexIdentifier() {
-        int startIndex = chars.index;
-        // getting the 1st character in the stream
-        char currentToken = chars.get(0);
-        String currentString = String.valueOf(currentToken);
-        // Check that the token doesn't start with a digit, underscore, or a hyphen
-        if (Character.isDigit(currentToken) || currentToken == '_' || currentToken == '-') {
-            // if it's any of these, throw a parse exception
+    private Token.Type scanIdentifier() {
+        // Check that the token starts with a letter or @, and not a digit, underscore, or a hyphen
+        if (!is(chars.get(0), IDENTIFIER_START)) {
             throw new ParseException("Invalid Identifier", chars.index);
         }
         chars.advance();
-        // while the token stream still has more characters, check that they match the requirements to be an identifier
-        while (chars.has(0)) {
-            if (peek("[a-zA-Z0-9_-]")) {
-                currentString += String.valueOf(chars.get(0));
+        // consume the rest of the identifier
+        if (bulkScan) {
+            chars.advanceWhile(IDENTIFIER_PART);
+        }
+        else {
+            while (peekClass(0, IDENTIFIER_PART)) {
                 chars.advance();
             }
-            else if (match(" ")) {
-                return new Token(Token.Type.IDENTIFIER, currentString, startIndex);
-            }
-            else {
-                break;
+        }
+        // check whether the identifier is a keyword
+        if (chars.length < KEYWORDS.length) {
+            for (Token.Kind keyword : KEYWORDS[chars.length]) {
+                if (matchesBehind(keyword.getLiteral())) {
+                    kind = keyword;
+                    break;
+                }
             }
         }
-        // looping through the stream to get to the end of the token
-        return new Token(Token.Type.IDENTIFIER, currentString, startIndex);
+        return Token.Type.IDENTIFIER;
     }
     // DONE
-    public Token lexNumber() {
-        int startIndex = chars.index;
-        boolean decimal = false;
-        String number = "";
-        // check that the first character is a digit
-        if (!Character.isDigit(chars.get(0))) {
-            // Check whether it's a negative sign
-            if (chars.get(0) == '-') {
-                number += chars.get(0);
-                if (!chars.has(1)) {
-                    throw new ParseException("Lone -", chars.index);
-                }
-                chars.advance();
-                if (!Character.isDigit(chars.get(0))) {
-                    throw new ParseException("Not a digit", chars.index);
-                }
-            }
-            else {
-                throw new ParseException("Not a digit", chars.index);
-            }
+    private Token.Type scanNumber() {
+        unscaled = 0;
+        scale = 0;
+        overflow = false;
+        // Check for the negative sign
+        boolean negative = chars.get(0) == '-';
+        if (negative) {
+            chars.advance();
+        }
+        if (!peekClass(0, DIGIT)) {
+            throw new ParseException("Not a digit", chars.index);
         }
-        number += chars.get(0);
-        // check that if the character was a 0, then there's nothing that comes after it unless it's a decimal
+        // a leading 0 can only be followed by the decimal point
         if (chars.get(0) == '0') {
-            if (!(chars.has(1))) {
-                chars.advance();
-                return new Token(Token.Type.INTEGER, number, startIndex);
-            }
             chars.advance();
-            // else check that there's a decimal point that follows
-            if (peek(String.valueOf(chars.get(0)), ".")) {
-                decimal = true;
-                if (!(chars.has(1))) {
-                    throw new ParseException("Trailing Decimal", chars.index);
-                }
-            }
+        }
+        else {
+            scanDigits();
+        }
+        // the decimal point is only part of the number if there is a digit after it
+        if (!(chars.has(0) && chars.get(0) == '.' && peekClass(1, DIGIT))) {
+            unscaled = negative ? -unscaled : unscaled;
+            return Token.Type.INTEGER;
         }
         chars.advance();
-        // while there are more characters in the token, go to them and check
-        while (chars.has(0)) {
-            // check that current character is a digit
-            if (!Character.isDigit(chars.get(0))) {
-                // Check if it's a decimal
-                if ((chars.get(0) == '.')) {
-                    // Check that there's only one decimal
-                    if (decimal) {
-                        throw new ParseException("Not a digit!", chars.index);
-                    }
-                    decimal = true;
-                    // Check that there's no lingering decimal
-                    if (!chars.has(1)) {
-                        throw new ParseException("Lingering Decimal", chars.index);
-                    }
-                }
-                else {
-                    break;
-                }
+        scale = scanDigits();
+        unscaled = negative ? -unscaled : unscaled;
+        return Token.Type.DECIMAL;
+    }
+
+    /**
+     * Advances over a run of digits, accumulating them into the unscaled
+     * value (or setting overflow), and returns the number of digits.
+     */
+    private int scanDigits() {
+        int count = 0;
+        while (peekClass(0, DIGIT)) {
+            int digit = chars.get(0) - '0';
+            if (unscaled > (Long.MAX_VALUE - digit) / 10) {
+                overflow = true;
             }
-            number+= chars.get(0);
+            unscaled = unscaled * 10 + digit;
             chars.advance();
+            count++;
         }
-        // return the correct token type based on decimal
-        if (decimal) {
-            /*if (checkRange(2, number)) {
-                throw new ParseException("Number is out of range!", startIndex);
-            }*/
-            return new Token(Token.Type.DECIMAL, number, startIndex);
-        }
-        else {
-            // Checks whether the string is within range
-            /*if (checkRange(1, number)) {
-                throw new ParseException("Number is out of range!", startIndex);
-            }*/
-            return new Token(Token.Type.INTEGER, number, startIndex);
-        }
-
+        return count;
     }
     // Done
-    public Token lexCharacter() {
-        int startIndex = chars.index;
-        String character = String.valueOf(chars.get(0));
+    private Token.Type scanCharacter() {
         if (!chars.has(1)) {
             throw new ParseException("Unterminated Character", chars.index);
         }
         chars.advance();
         // check whether there is an escape character, if not then make sure the next char is '
         if (chars.get(0) == '\\') {
-            character += chars.get(0);
             lexEscape();
-            character += chars.get(0);
         }
-        else {
-            // either the closing quote is here or in the next one, no more
-            if (chars.get(0) == '\'') {
-                throw new ParseException("Empty character", chars.index);
-            }
-            // throw exception if there's a newline
-            else if (chars.get(0) == '\n') {
-                throw new ParseException("Newline Prohibited", chars.index);
-            }
-            else {
-                character += chars.get(0);
-            }
+        // either the closing quote is here or in the next one, no more
+        else if (chars.get(0) == '\'') {
+            throw new ParseException("Empty character", chars.index);
         }
-        if (!chars.has(1)) {
-            throw new ParseException("Unterminated Char", chars.index);
+        // throw exception if there's a newline
+        else if (chars.get(0) == '\n') {
+            throw new ParseException("Newline Prohibited", chars.index);
         }
         chars.advance();
         // check that the last character is a single quote
-        if (!(chars.get(0) == '\'')) {
+        if (!chars.has(0) || chars.get(0) != '\'') {
             throw new ParseException("Unterminated Char", chars.index);
         }
-        character += chars.get(0);
         chars.advance();
-        return new Token(Token.Type.CHARACTER, character, startIndex);
+        return Token.Type.CHARACTER;
     }
     // DONE
-    public Token lexString() {
-        boolean checkQuotes = false;
-        int startIndex = chars.index;
-        String token = "";
-        // Check for the beginning quote
-        // getting the " character
-        token += String.valueOf(chars.get(0));
-        // while there are more tokens, we check that they match the conditions of a string
-        while(chars.has(1)) {
-            chars.advance();
-            // if the character is a ", then we close the string and then exit the loop
-            if (chars.get(0) == '\"') {
-                checkQuotes = true;
-                token += chars.get(0);
-                break;
+    private Token.Type scanString() {
+        escaped = false;
+        // skipping the opening "
+        chars.advance();
+        // while there are more characters, we check that they match the conditions of a string
+        while (chars.has(0)) {
+            char current = chars.get(0);
+            // if the character is a ", then we close the string
+            if (current == '"') {
+                chars.advance();
+                return Token.Type.STRING;
             }
-            else if (chars.get(0) == '\n') {
+            else if (current == '\n') {
                 throw new ParseException("Newline not allowed", chars.index);
             }
-            // else check if there is an escape
-            else if (chars.get(0) == '\\') {
-                token += chars.get(0);
+            // else check if there is an escape, which leaves us on its 2nd part
+            else if (current == '\\') {
                 lexEscape();
-                // getting the 2nd part of the escape
-                token += chars.get(0);
-                continue;
-
+                escaped = true;
             }
-            // else that means it's just a character, so add it to the string
-            token += (chars.get(0));
-        }
-        if (!checkQuotes) {
-            throw new ParseException("Unterminated", ++chars.index);
+            chars.advance();
         }
-        chars.advance();
-        return new Token(Token.Type.STRING, token, startIndex);
+        throw new ParseException("Unterminated", chars.index);
     }
     // DONE
     public void lexEscape() {
@@ -307,100 +850,67 @@ public final class Lexer {
         }
         chars.advance();
         // Then check that the next character follows the rule of an escape character according to the grammar
-        if (!peek("[b | n | r | t | \\\\ | ' | \"]")) {
+        if (!is(chars.get(0), ESCAPE)) {
             throw new ParseException("Invalid Escape", chars.index);
         }
         // else nothing happens
     }
 
-    public Token lexOperator() {
-        String op = "";
-        int startIndex = chars.index;
-        // Lexing &
-        if (chars.get(0) == '&') {
-            op += chars.get(0);
-            // check that the char after is also a &
-            if (!chars.has(1)) {
-                throw new ParseException("Invalid &", chars.index);
-            }
-            chars.advance();
-            if (chars.get(0) == '&') {
-                op += chars.get(0);
-                return new Token(Token.Type.OPERATOR, op, startIndex);
-            }
-            else {
-                throw new ParseException("Invalid &", chars.index);
-            }
-        }
-        // lexing |
-        else if (chars.get(0) == '|') {
-            op += chars.get(0);
-            // check that the char after is also a &
-            if (!chars.has(1)) {
-                throw new ParseException("Invalid |", chars.index);
-            }
-            chars.advance();
-            if (chars.get(0) == '|') {
-                op += chars.get(0);
-                return new Token(Token.Type.OPERATOR, op, startIndex);
-            }
-            else {
-                throw new ParseException("Invalid |", chars.index);
-            }
-        }
-        // lexing !=
-        else if (chars.get(0) == '!') {
-            op += chars.get(0);
-            // check that the char after is also a &
-            if (!chars.has(1)) {
-                throw new ParseException("Invalid !=", chars.index);
-            }
-            chars.advance();
-            if (chars.get(0) == '=') {
-                op += chars.get(0);
-                chars.advance();
-                return new Token(Token.Type.OPERATOR, op, startIndex);
-            }
-            else {
-                throw new ParseException("Invalid !=", chars.index);
-            }
-        }
-        // lexing ==
-        else if (chars.get(0) == '=') {
-            op += chars.get(0);
-            // check that the char after is also a =
-            if ((!chars.has(1)) || (chars.get(1) == ' ')) {
-                // lex it as a single =
-                chars.advance();
-                return new Token(Token.Type.OPERATOR, op, startIndex);
-            }
-            chars.advance();
-            if (chars.get(0) == '=') {
-                op += chars.get(0);
-                chars.advance();
-                return new Token(Token.Type.OPERATOR, op, startIndex);
-            }
-            else {
-                throw new ParseException("Invalid ==", chars.index);
-            }
-        }
+    private Token.Type scanOperator() {
+        char current = chars.get(0);
         // check whitespace
-        else if (Character.isWhitespace(chars.get(0))) {
+        if (Character.isWhitespace(current)) {
             throw new ParseException("White Space is not a valid operator", chars.index);
         }
-        // lexing all other single operators
-        else {
-            op += chars.get(0);
-            chars.advance();
-            return new Token(Token.Type.OPERATOR, op, startIndex);
+        chars.advance();
+        switch (current) {
+            // lexing && and ||, which have no single character form
+            case '&':
+            case '|':
+                if (!chars.has(0) || chars.get(0) != current) {
+                    throw new ParseException("Invalid " + current, chars.index);
+                }
+                chars.advance();
+                kind = current == '&' ? Token.Kind.AND : Token.Kind.OR;
+                return Token.Type.OPERATOR;
+            // lexing != and ==, which may also be a single character
+            case '!':
+            case '=':
+                if (chars.has(0) && chars.get(0) == '=') {
+                    chars.advance();
+                    kind = current == '!' ? Token.Kind.NOT_EQUAL : Token.Kind.EQUAL;
+                    return Token.Type.OPERATOR;
+                }
+                break;
+            // all other operators are a single character
+            default:
+                break;
+        }
+        if (current < OPERATORS.length && OPERATORS[current] != null) {
+            kind = OPERATORS[current];
         }
+        return Token.Type.OPERATOR;
+    }
 
+    /**
+     * Returns true if the token matched so far is exactly the given literal.
+     */
+    private boolean matchesBehind(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (chars.get(i - chars.length) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * Returns true if the next sequence of characters match the given patterns,
      * which should be a regex. For example, {@code peek("a", "b", "c")} would
      * return true if the next characters are {@code 'a', 'b', 'c'}.
+     *
+     * This compiles each pattern on every call, so the lexer itself uses the
+     * character class table instead.
      */
     public boolean peek(String... patterns) {
         for (int i = 0; i < patterns.length; i++) {
@@ -433,23 +943,57 @@ public final class Lexer {
      * You should rely on peek/match for state management in nearly all cases.
      * The only field you need to access is {@link #index} for any {@link
      * ParseException} which is thrown.
+     *
+     * The input is either a {@link CharSequence} held in memory or a {@link
+     * Reader}. For a reader, only a window starting at the current token is
+     * buffered; it is refilled (and grown for very long tokens) as needed.
      */
     public static final class CharStream {
 
-        private final String input;
+        private static final int BUFFER_SIZE = 8192;
+
+        private final CharSequence input;
+        private final Reader reader;
+        private char[] buffer;
+        private int start = 0;
+        private int end;
         private int index = 0;
         private int length = 0;
 
-        public CharStream(String input) {
+        public CharStream(CharSequence input) {
             this.input = input;
+            this.reader = null;
+            this.end = input.length();
+        }
+
+        public CharStream(Reader reader) {
+            this.input = null;
+            this.reader = reader;
+            this.buffer = new char[BUFFER_SIZE];
+            this.end = 0;
         }
 
         public boolean has(int offset) {
-            return index + offset < input.length();
+            return index + offset < end || (reader != null && fill(index + offset));
         }
 
         public char get(int offset) {
-            return input.charAt(index + offset);
+            return buffer != null ? buffer[index + offset - start] : input.charAt(index + offset);
+        }
+
+        /**
+         * Copies an in-memory input into the buffer, so characters are read
+         * from an array rather than through {@link CharSequence#charAt(int)}.
+         * The copy is a single bulk copy and takes a fraction of the time of
+         * lexing. Characters are scanned one at a time from the array, as
+         * Java cannot read a char array a word at a time. Mapped ASCII bytes
+         * are scanned a word at a time instead, so they are not copied, and a
+         * reader's input is buffered anyway.
+         */
+        private void load() {
+            if (buffer == null && !(input instanceof AsciiSequence)) {
+                buffer = input.toString().toCharArray();
+            }
         }
 
         public void advance() {
@@ -460,10 +1004,206 @@ public final class Lexer {
             length = 0;
         }
 
+        /**
+         * Advances over a run of characters of the given class, which is
+         * either {@link Lexer#WHITESPACE} or {@link Lexer#IDENTIFIER_PART}. An in-memory
+         * input is scanned directly instead of through has/get, from the
+         * array once loaded and ASCII bytes a word at a time; a reader is
+         * still read one at a time.
+         */
+        private void advanceWhile(int type) {
+            if (reader != null) {
+                while (has(0) && is(get(0), type)) {
+                    advance();
+                }
+                return;
+            }
+            int i = index;
+            if (buffer != null) {
+                while (i < end && is(buffer[i], type)) {
+                    i++;
+                }
+                length += i - index;
+                index = i;
+                return;
+            }
+            if (input instanceof AsciiSequence) {
+                i = ((AsciiSequence) input).scan(i, type);
+            }
+            // the rest of the run, or all of it for other inputs
+            while (i < end && is(input.charAt(i), type)) {
+                i++;
+            }
+            length += i - index;
+            index = i;
+        }
+
+        /**
+         * Creates a token from the characters matched since the last skip
+         * or emit, which costs a single substring of the input.
+         */
         public Token emit(Token.Type type) {
+            int start = index - length;
+            return new Token(type, slice(), start);
+        }
+
+        /**
+         * Creates a token of a known kind, which uses the canonical literal of
+         * the kind instead of slicing it out of the input.
+         */
+        public Token emit(Token.Type type, Token.Kind kind) {
+            int start = index - length;
+            if (kind == Token.Kind.NONE) {
+                return new Token(type, kind, slice(), start);
+            }
+            skip();
+            return new Token(type, kind, kind.getLiteral(), start);
+        }
+
+        /**
+         * Returns the characters matched since the last skip or emit and
+         * resets the length for the next token.
+         */
+        private String slice() {
             int start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            return reader == null
+                    ? input.subSequence(start, index).toString()
+                    : new String(buffer, start - this.start, index - start);
+        }
+
+        /**
+         * Reads from the reader until the character at the given position is
+         * buffered, returning false if the input ends first. Characters before
+         * the current token are dropped to make room.
+         */
+        private boolean fill(int position) {
+            int keep = index - length;
+            if (keep > start) {
+                System.arraycopy(buffer, keep - start, buffer, 0, end - keep);
+                start = keep;
+            }
+            if (position - start >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, position - start + 1));
+            }
+            try {
+                while (end <= position) {
+                    int read = reader.read(buffer, end - start, buffer.length - (end - start));
+                    if (read < 0) {
+                        return false;
+                    }
+                    end += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * A read-only view of ASCII bytes, such as a memory-mapped file, as
+     * characters without decoding them into a separate copy.
+     */
+    private static final class AsciiSequence implements CharSequence {
+
+        // SWAR constants, with one copy of a value in each byte of a long
+        private static final long ONES = 0x0101010101010101L;
+        private static final long HIGH = 0x8080808080808080L;
+        private static final long LOW = 0x7F7F7F7F7F7F7F7FL;
+
+        private final ByteBuffer bytes;
+        private final boolean bigEndian;
+
+        private AsciiSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.bigEndian = bytes.order() == ByteOrder.BIG_ENDIAN;
+        }
+
+        /**
+         * Returns the position of the first byte from the given one which is
+         * not in the given class ({@link Lexer#WHITESPACE} or {@link
+         * Lexer#IDENTIFIER_PART}), reading eight bytes per long. The last few
+         * bytes of the input are not read, so the position returned may
+         * still be in the class and the caller finishes the run.
+         */
+        private int scan(int from, int type) {
+            int i = from;
+            while (i + 8 <= bytes.limit()) {
+                long word = bytes.getLong(i);
+                long matches = type == WHITESPACE ? whitespace(word) : identifierPart(word);
+                if (matches == HIGH) {
+                    i += 8;
+                    continue;
+                }
+                long misses = ~matches & HIGH;
+                return i + (bigEndian ? Long.numberOfLeadingZeros(misses) : Long.numberOfTrailingZeros(misses)) / 8;
+            }
+            return i;
+        }
+
+        /**
+         * Sets the high bit of each byte of the word which is whitespace.
+         */
+        private static long whitespace(long word) {
+            return equal(word, ' ') | equal(word, '\n') | equal(word, '\b') | equal(word, '\r') | equal(word, '\t');
+        }
+
+        /**
+         * Sets the high bit of each byte of the word which can continue an
+         * identifier, [A-Za-z0-9_-]. Bytes outside of ASCII never can.
+         */
+        private static long identifierPart(long word) {
+            long ascii = word & LOW;
+            long matches = between(ascii | ONES * 0x20, 'a', 'z')
+                    | between(ascii, '0', '9')
+                    | equal(ascii, '_')
+                    | equal(ascii, '-');
+            return matches & ~word & HIGH;
+        }
+
+        /**
+         * Sets the high bit of each byte of the word equal to c, exactly (the
+         * usual zero byte test, without borrows between bytes).
+         */
+        private static long equal(long word, char c) {
+            long x = word ^ ONES * c;
+            return ~(((x & LOW) + LOW) | x | LOW);
+        }
+
+        /**
+         * Sets the high bit of each byte of the word in the range [low, high].
+         * Every byte must be below 0x80, so the additions cannot carry.
+         */
+        private static long between(long word, char low, char high) {
+            long atLeast = word + ONES * (0x80 - low);
+            long above = word + ONES * (0x7F - high);
+            return atLeast & ~above & HIGH;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] range = new byte[end - start];
+            for (int i = 0; i < range.length; i++) {
+                range[i] = bytes.get(start + i);
+            }
+            return new String(range, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
         }
 
     }
@@ -0,0 +1,23 @@
+package plc.project;
+
+/**
+ * Receives an event for each token scanned by a {@link Lexer}, for
+ * instrumentation such as {@link LexerMetrics}. Set with {@link
+ * Lexer#setListener(LexerListener)}; without a listener, the lexer does not
+ * read the clock or call anything per token.
+ */
+public interface LexerListener {
+
+    /**
+     * Called after a token is scanned, with its type, position and length in
+     * the source, and the time spent scanning it.
+     */
+    void onToken(Token.Type type, int index, int length, long nanos);
+
+    /**
+     * Called when scanning a token fails, before the error is thrown (or
+     * recorded, in recovery mode).
+     */
+    default void onError(ParseException error) {}
+
+}
@@ -0,0 +1,178 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A {@link LexerListener} collecting, per token type, the number of tokens,
+ * characters and nanoseconds spent scanning, the longest token and a
+ * histogram of token lengths in power of two buckets. Updates are
+ * synchronized, so one instance can be shared by lexers on several threads
+ * (such as {@link Lexer#lexParallel(CharSequence,
+ * java.util.concurrent.ForkJoinPool)}) and read with {@link #snapshot()} at
+ * any time.
+ */
+public final class LexerMetrics implements LexerListener {
+
+    /**
+     * Bucket i of a histogram counts the tokens with a length in [2^(i-1),
+     * 2^i), with bucket 0 for empty tokens.
+     */
+    public static final int BUCKETS = 32;
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final long[] counts = new long[TYPES.length];
+    private final long[] characters = new long[TYPES.length];
+    private final long[] nanos = new long[TYPES.length];
+    private final int[] longest = new int[TYPES.length];
+    private final int[] longestIndex = new int[TYPES.length];
+    private final long[][] histograms = new long[TYPES.length][BUCKETS];
+    private long errors;
+
+    @Override
+    public synchronized void onToken(Token.Type type, int index, int length, long nanos) {
+        int i = type.ordinal();
+        counts[i]++;
+        characters[i] += length;
+        this.nanos[i] += nanos;
+        if (length > longest[i]) {
+            longest[i] = length;
+            longestIndex[i] = index;
+        }
+        histograms[i][Integer.SIZE - Integer.numberOfLeadingZeros(length)]++;
+    }
+
+    @Override
+    public synchronized void onError(ParseException error) {
+        errors++;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(characters, 0);
+        Arrays.fill(nanos, 0);
+        Arrays.fill(longest, 0);
+        Arrays.fill(longestIndex, 0);
+        for (long[] histogram : histograms) {
+            Arrays.fill(histogram, 0);
+        }
+        errors = 0;
+    }
+
+    /**
+     * Returns a copy of the metrics collected so far.
+     */
+    public synchronized Snapshot snapshot() {
+        long[][] histograms = new long[TYPES.length][];
+        for (int i = 0; i < TYPES.length; i++) {
+            histograms[i] = this.histograms[i].clone();
+        }
+        return new Snapshot(counts.clone(), characters.clone(), nanos.clone(),
+                longest.clone(), longestIndex.clone(), histograms, errors);
+    }
+
+    /**
+     * An immutable copy of the metrics at some point in time.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long[] characters;
+        private final long[] nanos;
+        private final int[] longest;
+        private final int[] longestIndex;
+        private final long[][] histograms;
+        private final long errors;
+
+        private Snapshot(long[] counts, long[] characters, long[] nanos, int[] longest, int[] longestIndex, long[][] histograms, long errors) {
+            this.counts = counts;
+            this.characters = characters;
+            this.nanos = nanos;
+            this.longest = longest;
+            this.longestIndex = longestIndex;
+            this.histograms = histograms;
+            this.errors = errors;
+        }
+
+        public long getCount(Token.Type type) {
+            return counts[type.ordinal()];
+        }
+
+        public long getCharacters(Token.Type type) {
+            return characters[type.ordinal()];
+        }
+
+        public long getNanos(Token.Type type) {
+            return nanos[type.ordinal()];
+        }
+
+        /**
+         * Returns the length of the longest token of the given type.
+         */
+        public int getLongest(Token.Type type) {
+            return longest[type.ordinal()];
+        }
+
+        /**
+         * Returns the source index of the longest token of the given type,
+         * which is the first one if several have the same length.
+         */
+        public int getLongestIndex(Token.Type type) {
+            return longestIndex[type.ordinal()];
+        }
+
+        /**
+         * Returns the histogram of token lengths of the given type, see
+         * {@link #BUCKETS}.
+         */
+        public long[] getHistogram(Token.Type type) {
+            return histograms[type.ordinal()].clone();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getTotalCount() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Returns the metrics as flat names and values, such as {@code
+         * lexer.string.count}, for exporting to monitoring. Histogram buckets
+         * are only included once they are not empty.
+         */
+        public Map<String, Long> toMap() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Token.Type type : TYPES) {
+                String prefix = "lexer." + type.name().toLowerCase(Locale.ROOT) + ".";
+                int i = type.ordinal();
+                map.put(prefix + "count", counts[i]);
+                map.put(prefix + "characters", characters[i]);
+                map.put(prefix + "nanos", nanos[i]);
+                map.put(prefix + "longest", (long) longest[i]);
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    if (histograms[i][bucket] != 0) {
+                        map.put(prefix + "length.bucket" + bucket, histograms[i][bucket]);
+                    }
+                }
+            }
+            map.put("lexer.errors", errors);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot" + toMap();
+        }
+
+    }
+
+}
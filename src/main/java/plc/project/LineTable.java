@@ -0,0 +1,94 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * The offsets at which each line of a source starts, so a character index
+ * (such as {@link Token#getIndex()} or {@link ParseException#getIndex()})
+ * can be mapped to a line and column with a binary search instead of
+ * rescanning the source. Lines and columns are 1-based.
+ *
+ * The lexer records the table as it skips whitespace, which is the only
+ * place a newline can appear, and exposes it through {@link
+ * Lexer#getLines()}. For sources lexed some other way, use {@link
+ * #of(CharSequence)}. The lexer and the parser look up the line and column
+ * of their errors in the table, see {@link ParseException#getLine()}.
+ */
+public final class LineTable {
+
+    private int[] starts = new int[16];
+    private int size = 1;
+
+    /**
+     * Creates a table of a single line starting at 0, to be extended with
+     * {@link #addLine(int)}.
+     */
+    LineTable() {}
+
+    /**
+     * Creates the table of the given source by scanning it for newlines.
+     */
+    public static LineTable of(CharSequence source) {
+        LineTable lines = new LineTable();
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                lines.addLine(i + 1);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Adds a line starting at the given offset, which is just past a newline
+     * and after the start of every line added so far.
+     */
+    void addLine(int start) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * size);
+        }
+        starts[size++] = start;
+    }
+
+    public int getLineCount() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the first character of the given line.
+     */
+    public int getLineStart(int line) {
+        if (line < 1 || line > size) {
+            throw new IndexOutOfBoundsException("Line: " + line + ", Lines: " + size);
+        }
+        return starts[line - 1];
+    }
+
+    /**
+     * Returns the line of the character at the given index.
+     */
+    public int getLine(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        int position = Arrays.binarySearch(starts, 0, size, index);
+        // the insertion point is the line after the one containing the index
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    /**
+     * Returns the column of the character at the given index.
+     */
+    public int getColumn(int index) {
+        return index - starts[getLine(index) - 1] + 1;
+    }
+
+    /**
+     * Returns the position of the given index as {@code line:column}, for
+     * diagnostics.
+     */
+    public String format(int index) {
+        int line = getLine(index);
+        return line + ":" + (index - starts[line - 1] + 1);
+    }
+
+}
@@ -0,0 +1,322 @@
+package plc.project;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache in front of the {@link Lexer} and {@link Parser#parseSource()},
+ * keyed by the SHA-256 hash of the input so a source compiled again is not
+ * lexed or parsed again. The cache holds at most a given number of tokens
+ * across its trees, evicting the least recently used trees to make room, so
+ * its size follows the size of the sources rather than how many there are.
+ * A source with more tokens than the whole cache is parsed but not cached.
+ * <p>
+ * The trees are shared by every caller, so they are marked as shared once
+ * parsed and the setters for the {@link Analyzer}'s results throw on them.
+ * {@link Analyzer#analyze(Ast.Source)} copies a shared tree before
+ * analyzing it, so a hit costs no more than hashing the source, and the
+ * copy is only made by callers which analyze.
+ * <p>
+ * The cache is synchronized, so it can be shared between threads. Sources
+ * are parsed outside of the lock, so two threads missing on the same
+ * source may both parse it.
+ */
+public final class ParseCache {
+
+    private final Lru trees;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a cache holding trees of at most {@code maxTokens} tokens in
+     * total.
+     */
+    public ParseCache(int maxTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("Maximum tokens must be positive, received " + maxTokens + ".");
+        }
+        this.trees = new Lru(maxTokens);
+    }
+
+    /**
+     * Returns the shared tree of the given source, parsing it if it is not
+     * cached. Parse errors are thrown as by the parser and not cached.
+     */
+    public Ast.Source get(String input) throws ParseException {
+        ByteBuffer key = hash(input);
+        synchronized (this) {
+            Entry entry = trees.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.tree;
+            }
+            misses++;
+        }
+        Lexer lexer = new Lexer(input);
+        List<Token> tokens = lexer.lex();
+        Parser parser = new Parser(tokens);
+        parser.setLines(lexer.getLines());
+        Ast.Source tree = parser.parseSource();
+        new Sharer().visit(tree);
+        synchronized (this) {
+            return trees.add(key, new Entry(tree, tokens.size()));
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return trees.evictions;
+    }
+
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * Returns the number of tokens of the cached trees.
+     */
+    public synchronized long getTokens() {
+        return trees.tokens;
+    }
+
+    /**
+     * Removes all cached trees, keeping the counters.
+     */
+    public synchronized void clear() {
+        trees.clear();
+        trees.tokens = 0;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the UTF-8 encoding of the input, wrapped so
+     * it compares by content as a map key.
+     */
+    private static ByteBuffer hash(String input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(input.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new AssertionError(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Ast.Source tree;
+        private final int tokens;
+
+        private Entry(Ast.Source tree, int tokens) {
+            this.tree = tree;
+            this.tokens = tokens;
+        }
+
+    }
+
+    /**
+     * The cached trees in access order, so the eldest entry is the least
+     * recently used one. After each insertion, the eldest entries are evicted
+     * until the tokens fit in {@code maxTokens} again.
+     */
+    private static final class Lru extends LinkedHashMap<ByteBuffer, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxTokens;
+        private long tokens = 0;
+        private long evictions = 0;
+
+        private Lru(int maxTokens) {
+            super(16, 0.75f, true);
+            this.maxTokens = maxTokens;
+        }
+
+        /**
+         * Adds the entry unless another thread added the same source first,
+         * returning the tree which is cached.
+         */
+        private Ast.Source add(ByteBuffer key, Entry entry) {
+            Entry existing = get(key);
+            if (existing != null) {
+                return existing.tree;
+            }
+            if (entry.tokens <= maxTokens) {
+                tokens += entry.tokens;
+                put(key, entry);
+            }
+            return entry.tree;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+            // evicts by itself, since more than one entry may have to go
+            Iterator<Entry> iterator = values().iterator();
+            while (tokens > maxTokens) {
+                tokens -= iterator.next().tokens;
+                iterator.remove();
+                evictions++;
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Marks every node of a tree as shared.
+     */
+    private static final class Sharer implements Ast.Visitor<Void> {
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            ast.share();
+            visit(ast.getGlobals());
+            visit(ast.getFunctions());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Global ast) {
+            ast.share();
+            ast.getValue().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Function ast) {
+            ast.share();
+            visit(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Expression ast) {
+            ast.share();
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Declaration ast) {
+            ast.share();
+            ast.getValue().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Assignment ast) {
+            ast.share();
+            visit(ast.getReceiver());
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.If ast) {
+            ast.share();
+            visit(ast.getCondition());
+            visit(ast.getThenStatements());
+            visit(ast.getElseStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Switch ast) {
+            ast.share();
+            visit(ast.getCondition());
+            visit(ast.getCases());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Case ast) {
+            ast.share();
+            ast.getValue().ifPresent(this::visit);
+            visit(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.While ast) {
+            ast.share();
+            visit(ast.getCondition());
+            visit(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Return ast) {
+            ast.share();
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Error ast) {
+            ast.share();
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Literal ast) {
+            ast.share();
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Group ast) {
+            ast.share();
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Binary ast) {
+            ast.share();
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Access ast) {
+            ast.share();
+            ast.getOffset().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Function ast) {
+            ast.share();
+            visit(ast.getArguments());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.PlcList ast) {
+            ast.share();
+            visit(ast.getValues());
+            return null;
+        }
+
+        private void visit(List<? extends Ast> asts) {
+            for (Ast ast : asts) {
+                visit(ast);
+            }
+        }
+
+    }
+
+}
@@ -3,6 +3,8 @@ package plc.project;
 public final class ParseException extends RuntimeException {
 
     private final int index;
+    private int line = 0;
+    private int column = 0;
 
     public ParseException(String message, int index) {
         super(message);
@@ -13,4 +15,39 @@ public final class ParseException extends RuntimeException {
         return index;
     }
 
+    /**
+     * Returns the line of the index, or 0 if the exception was raised without
+     * the line table of the source.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the index, or 0 if the exception was raised
+     * without the line table of the source.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Looks up the line and column of the index in the line table of the
+     * source, which must cover the index, returning this exception.
+     */
+    ParseException locate(LineTable lines) {
+        line = lines.getLine(index);
+        column = lines.getColumn(index);
+        return this;
+    }
+
+    /**
+     * Returns the message followed by the line and column, if known, so they
+     * are printed along with the exception.
+     */
+    @Override
+    public String getLocalizedMessage() {
+        return line == 0 ? getMessage() : getMessage() + " at " + line + ":" + column;
+    }
+
 }
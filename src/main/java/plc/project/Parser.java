@@ -1,8 +1,8 @@
 package plc.project;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The parser takes the sequence of tokens emitted by the lexer and turns that
@@ -10,8 +10,8 @@ import java.util.*;
  * Tree (AST).
  * <p>
  * The parser has a similar architecture to the lexer, just with {@link Token}s
- * instead of characters. As before, {@link #peek(Object...)} and {@link
- * #match(Object...)} are helpers to make the implementation easier.
+ * instead of characters. As before, {@link #peek(Token.Kind)} and {@link
+ * #match(Token.Kind)} are helpers to make the implementation easier.
  * <p>
  * This type of parser is called <em>recursive descent</em>. Each rule in our
  * grammar will have it's own function, and reference to other rules correspond
@@ -24,16 +24,123 @@ public final class Parser {
     // TODO: Fix If Statement
 
     private final TokenStream tokens;
+    private boolean recovering = false;
+    private boolean iterative = false;
+    private final List<ParseException> errors = new ArrayList<>();
+    private LineTable lines = null;
     public Parser(List<Token> tokens) {
         this.tokens = new TokenStream(tokens);
     }
 
+    /**
+     * Creates a parser that pulls tokens from the lexer as it goes, so only a
+     * small window of tokens is held in memory at once.
+     */
+    public Parser(Lexer lexer) {
+        this.tokens = new TokenStream(lexer);
+        this.lines = lexer.getLines();
+    }
+
+    /**
+     * Creates a parser reading directly from the arrays of a token buffer,
+     * without creating a {@link Token} for each token.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = new TokenStream(tokens);
+    }
+
+    /**
+     * Enables or disables recovery mode, in which {@link #parseSource()}
+     * collects parse errors into {@link #getErrors()} instead of throwing
+     * the first one. A statement which fails to parse is replaced by an
+     * {@link Ast.Statement.Error} and parsing resumes after the next
+     * {@code ;} or at the end of the enclosing block; a global or function
+     * which fails is dropped and parsing resumes at the next {@code FUN} or
+     * global keyword. Recovery needs to go back over the tokens of the
+     * failed construct, so it is not available when pulling tokens from a
+     * {@link Lexer}.
+     */
+    public void setRecovering(boolean recovering) {
+        if (recovering && tokens.source != null) {
+            throw new IllegalStateException("Recovery requires a token list or buffer.");
+        }
+        this.recovering = recovering;
+    }
+
+    /**
+     * Enables or disables parsing blocks and expressions with an explicit
+     * stack on the heap instead of recursion, so nesting of {@code IF},
+     * {@code WHILE} and {@code SWITCH} blocks, groups and list offsets is
+     * only limited by memory rather than the thread's stack. The trees and
+     * errors are the same as those of the recursive parser. In recovery
+     * mode, blocks are still parsed recursively.
+     */
+    public void setIterative(boolean iterative) {
+        this.iterative = iterative;
+    }
+
+    /**
+     * Sets the line table of the source, such as {@link Lexer#getLines()},
+     * so the errors of {@link #parseSource()} report their line and column.
+     * A parser pulling tokens from a lexer uses the lexer's table.
+     */
+    public void setLines(LineTable lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Returns the errors recorded so far in recovery mode, in the order they
+     * were found.
+     */
+    public List<ParseException> getErrors() {
+        return errors;
+    }
+
+    /**
+     * The kinds which end a block, for {@link #parseBlock()}.
+     */
+    private static final boolean[] FOLLOW_BLOCK = new boolean[Token.Kind.values().length];
+
+    static {
+        for (Token.Kind kind : new Token.Kind[] {Token.Kind.END, Token.Kind.ELSE, Token.Kind.DEFAULT, Token.Kind.CASE}) {
+            FOLLOW_BLOCK[kind.ordinal()] = true;
+        }
+    }
+
+    /**
+     * Returns the kind of the token at the given offset, or {@link
+     * Token.Kind#NONE} if there is no token there.
+     */
+    private Token.Kind kind(int offset) {
+        return tokens.has(offset) ? tokens.getKind(offset) : Token.Kind.NONE;
+    }
+
+    /**
+     * Looks up the line and column of the error if the line table of the
+     * source is known.
+     */
+    private ParseException locate(ParseException e) {
+        return lines != null ? e.locate(lines) : e;
+    }
+
+    private static boolean isGlobal(Token.Kind kind) {
+        return kind == Token.Kind.VAR || kind == Token.Kind.VAL;
+    }
+
+    /**
+     * Returns true for the keywords starting a global or function, where
+     * recovery always stops.
+     */
+    private static boolean isTopLevel(Token.Kind kind) {
+        return kind == Token.Kind.LIST || isGlobal(kind) || kind == Token.Kind.FUN;
+    }
+
     private void throwException(String exceptionName, int indexType) {
-        // indexType 0 = tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length()
+        // indexType 0 = tokens.getIndex(-1) + tokens.getLiteral(-1).length()
         if (indexType == 0) {
-            throw new ParseException(exceptionName, tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+            throw new ParseException(exceptionName, tokens.getIndex(-1) + tokens.getLiteral(-1).length());
         } else {
-            throw new ParseException(exceptionName, tokens.get(0).getIndex());
+            throw new ParseException(exceptionName, tokens.getIndex(0));
         }
     }
     private void checkToken() {
@@ -42,64 +149,324 @@ public final class Parser {
         }
     }
     private void parseSemicolon() {
-        if (!peek(";")) {
+        if (!peek(Token.Kind.SEMICOLON)) {
             throwException("Missing ;", 0);
         }
         tokens.advance();
     }
     private void parseColon() {
-        if (!peek(":")) {
+        if (!peek(Token.Kind.COLON)) {
             throwException("Missing :", 0);
         }
         tokens.advance();
     }
     private void parseDone() {
-        if (!peek("END") && !peek("ELSE")) {
+        if (!peek(Token.Kind.END) && !peek(Token.Kind.ELSE)) {
             throw new ParseException("BLOCK Needs End or ELSE", tokens.index);
         }
         tokens.advance();
     }
     private void parseDo() {
-        if (!peek("DO")) {
+        if (!peek(Token.Kind.DO)) {
             throw new ParseException("BLOCK Needs DO ", tokens.index);
         }
         tokens.advance();
     }
 
     /**
-     * Parses the {@code source} rule.
+     * Parses the {@code source} rule: globals, then functions, each parsed
+     * by {@link #parseTopLevel(boolean)}. In recovery mode, a global or
+     * function which fails to parse is skipped up to the next one instead
+     * of the error being thrown.
      */
     public Ast.Source parseSource() throws ParseException {
-        // throw new UnsupportedOperationException(); //TODO
-        // A source could be a global* or function* so do while loops for them
         List<Ast.Global> globalList = new ArrayList<Ast.Global>();
         List<Ast.Function> functionList = new ArrayList<Ast.Function>();
-        // Check that there is a valid keyword in the current token
-        if (peek("LIST") || peek("VAR") || peek("VAL") || peek("FUN")) {
-            // While the next token matches on either keywords LIST, VAR, or VAL, loop and create the global list
-            while ((peek("LIST")) || (peek("VAR")) || (peek("VAL"))) {
-                if (match("LIST")) {
-                    globalList.add(parseList());
-                    // Check for the ';' at the end
-                    checkToken();
-                    if (!match(";")) {
-                        throwException("Expecting Semicolon", 1);
-                    }
+        while (tokens.has(0)) {
+            int start = tokens.index;
+            try {
+                Ast ast = parseTopLevel(!functionList.isEmpty());
+                if (ast instanceof Ast.Global) {
+                    globalList.add((Ast.Global) ast);
                 } else {
-                    globalList.add(parseGlobal());
+                    functionList.add((Ast.Function) ast);
+                }
+            } catch (ParseException e) {
+                if (!recovering) {
+                    throw locate(e);
+                }
+                errors.add(locate(e));
+                // skip to the next global or function
+                tokens.index = start + 1;
+                while (tokens.has(0) && !isTopLevel(tokens.getKind(0))) {
+                    tokens.advance();
+                }
+            }
+        }
+        return new Ast.Source(globalList, functionList);
+    }
+
+    /**
+     * Parses a single global, including its semicolon, or function. This is
+     * the unit of {@link #parseSource()}, recovery, and incremental and
+     * parallel parsing, so they all agree on where each one ends. Globals
+     * come before all functions, so once a function has been parsed, only
+     * functions are allowed.
+     */
+    private Ast parseTopLevel(boolean functions) throws ParseException {
+        Token.Kind kind = tokens.getKind(0);
+        if (functions && kind != Token.Kind.FUN && isTopLevel(kind)) {
+            throw new ParseException("Global After Function", tokens.getIndex(0));
+        }
+        switch (kind) {
+            case LIST:
+                tokens.advance();
+                Ast.Global list = parseList();
+                // Check for the ';' at the end
+                checkToken();
+                if (!match(Token.Kind.SEMICOLON)) {
+                    throwException("Expecting Semicolon", 1);
                 }
+                return list;
+            case VAR:
+                return parseGlobal();
+            case VAL:
+                Ast.Global global = parseGlobal();
+                // parseImmutable leaves the semicolon for the caller
+                parseSemicolon();
+                return global;
+            case FUN:
+                tokens.advance();
+                return parseFunction();
+            default:
+                throw new ParseException("Invalid Source Keyword", tokens.getIndex(0));
+        }
+    }
+
+    /**
+     * Parses the tokens of a source after an edit, reusing the globals and
+     * functions of the previous AST which do not touch the edited range of
+     * characters, from {@code start} to {@code end} in the new input. A
+     * token right next to the range counts as touching it, since inserting
+     * text there may have changed the token. The tokens are split into
+     * globals and functions by {@link #segments(List)}, and only the
+     * segments overlapping the edit are parsed again, by {@link
+     * #parseTopLevel(boolean)} as in {@link #parseSource()}, so the time
+     * spent parsing is proportional to the size of the edited function
+     * rather than of the source.
+     * <p>
+     * If the edit changed the number or order of globals and functions, or
+     * the tokens do not split cleanly, the whole source is parsed instead,
+     * so the result is always equal to that of {@link #parseSource()}. The
+     * reused nodes are the same objects as in the previous AST, including
+     * anything the analyzer set on them.
+     */
+    public static Ast.Source reparse(Ast.Source previous, List<Token> tokens, int start, int end) throws ParseException {
+        int[] segments = segments(tokens);
+        int globals = previous.getGlobals().size();
+        if (segments == null || segments.length - 1 != globals + previous.getFunctions().size()) {
+            return new Parser(tokens).parseSource();
+        }
+        List<Ast.Global> globalList = new ArrayList<Ast.Global>(globals);
+        List<Ast.Function> functionList = new ArrayList<Ast.Function>(previous.getFunctions().size());
+        for (int i = 0; i < segments.length - 1; i++) {
+            Token first = tokens.get(segments[i]);
+            Token last = tokens.get(segments[i + 1] - 1);
+            if ((first.getKind() != Token.Kind.FUN) != (i < globals)) {
+                return new Parser(tokens).parseSource();
             }
-            while (match("FUN")) {
-                // if there is a keyword FUN there, that means that there are no global to parse, so keep parsing the functions
-                functionList.add(parseFunction());
+            Ast ast;
+            if (first.getIndex() <= end && start <= last.getIndex() + last.getLiteral().length()) {
+                ast = parseSegment(tokens, segments[i], segments[i + 1]);
+                if (ast == null) {
+                    return new Parser(tokens).parseSource();
+                }
+            } else {
+                ast = i < globals ? previous.getGlobals().get(i) : previous.getFunctions().get(i - globals);
+            }
+            if (ast instanceof Ast.Global) {
+                globalList.add((Ast.Global) ast);
+            } else {
+                functionList.add((Ast.Function) ast);
+            }
+        }
+        return new Ast.Source(globalList, functionList);
+    }
+
+    /**
+     * Parses the tokens of a source like {@link #parseSource()}, but with
+     * the functions parsed in parallel on the given pool. The tokens are
+     * split into globals and functions by {@link #segments(List)}, and the
+     * functions are handed out in ranges of about {@link
+     * ParseTask#THRESHOLD} tokens, so a source with few or small functions
+     * stays on one thread.
+     * <p>
+     * If the tokens do not split cleanly or any function fails to parse,
+     * the source is parsed again sequentially, so the result or exception
+     * is always the same as that of {@link #parseSource()}.
+     */
+    public static Ast.Source parseParallel(List<Token> tokens, ForkJoinPool pool) throws ParseException {
+        int[] segments = segments(tokens);
+        if (segments == null) {
+            return new Parser(tokens).parseSource();
+        }
+        int globals = 0;
+        while (globals < segments.length - 1 && tokens.get(segments[globals]).getKind() != Token.Kind.FUN) {
+            globals++;
+        }
+        Ast[] asts = new Ast[segments.length - 1];
+        try {
+            for (int i = 0; i < globals; i++) {
+                asts[i] = parseSegment(tokens, segments[i], segments[i + 1]);
             }
+            pool.invoke(new ParseTask(tokens, segments, globals, segments.length - 1, asts));
+        } catch (ParseException e) {
+            // report the first error in the source, as parseSource would
+            return new Parser(tokens).parseSource();
         }
-        // If there's another token that doesn't have the right keyword, then throw exception
-        else if (tokens.has(0)) {
-            throw new ParseException("Invalid Source Keyword", 0);
+        List<Ast.Global> globalList = new ArrayList<Ast.Global>(globals);
+        List<Ast.Function> functionList = new ArrayList<Ast.Function>(asts.length - globals);
+        for (int i = 0; i < asts.length; i++) {
+            // a global after the functions or a segment with tokens left over
+            if (!(i < globals ? asts[i] instanceof Ast.Global : asts[i] instanceof Ast.Function)) {
+                return new Parser(tokens).parseSource();
+            } else if (i < globals) {
+                globalList.add((Ast.Global) asts[i]);
+            } else {
+                functionList.add((Ast.Function) asts[i]);
+            }
         }
         return new Ast.Source(globalList, functionList);
+    }
 
+    /**
+     * Parses the segment of tokens from {@code from} to {@code to} as a
+     * single global or function, returning null if it does not use all of
+     * the tokens.
+     */
+    private static Ast parseSegment(List<Token> tokens, int from, int to) throws ParseException {
+        Parser parser = new Parser(tokens.subList(from, to));
+        Ast ast = parser.parseTopLevel(false);
+        return parser.tokens.has(0) ? null : ast;
+    }
+
+    /**
+     * Parses a range of segments for {@link #parseParallel(List,
+     * ForkJoinPool)}, splitting it in half while it has more than {@link
+     * #THRESHOLD} tokens.
+     */
+    private static final class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 4096;
+
+        private final List<Token> tokens;
+        private final int[] segments;
+        private final int from;
+        private final int to;
+        private final Ast[] asts;
+
+        private ParseTask(List<Token> tokens, int[] segments, int from, int to, Ast[] asts) {
+            this.tokens = tokens;
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.asts = asts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && segments[to] - segments[from] > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(tokens, segments, from, middle, asts),
+                        new ParseTask(tokens, segments, middle, to, asts));
+            } else {
+                for (int i = from; i < to; i++) {
+                    asts[i] = parseSegment(tokens, segments[i], segments[i + 1]);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Splits the tokens into top-level globals and functions by looking at
+     * their kinds alone, without parsing them. A global runs from its
+     * keyword to the next {@code ;}, and a function from {@code FUN} to the
+     * {@code END} matching its {@code DO}, counting {@code DO} and {@code
+     * SWITCH} as opening a block and {@code END} as closing one.
+     * <p>
+     * Returns the index of the first token of each segment followed by the
+     * number of tokens, or null if the tokens do not split that way, which
+     * is only the case if the source does not parse.
+     */
+    static int[] segments(List<Token> tokens) {
+        int[] segments = new int[16];
+        int count = 0;
+        int index = 0;
+        while (index < tokens.size()) {
+            if (count + 1 == segments.length) {
+                segments = Arrays.copyOf(segments, segments.length * 2);
+            }
+            segments[count++] = index;
+            Token.Kind kind = tokens.get(index++).getKind();
+            if (kind == Token.Kind.FUN) {
+                int depth = 0;
+                do {
+                    if (index == tokens.size()) {
+                        return null;
+                    }
+                    kind = tokens.get(index++).getKind();
+                    if (kind == Token.Kind.DO || kind == Token.Kind.SWITCH) {
+                        depth++;
+                    } else if (kind == Token.Kind.END && --depth < 0) {
+                        return null;
+                    } else if (isTopLevel(kind)) {
+                        return null;
+                    }
+                } while (depth > 0 || kind != Token.Kind.END);
+            } else if (kind == Token.Kind.LIST || isGlobal(kind)) {
+                do {
+                    if (index == tokens.size()) {
+                        return null;
+                    }
+                    kind = tokens.get(index++).getKind();
+                    if (isTopLevel(kind)) {
+                        return null;
+                    }
+                } while (kind != Token.Kind.SEMICOLON);
+            } else {
+                return null;
+            }
+        }
+        segments[count++] = tokens.size();
+        return Arrays.copyOf(segments, count);
+    }
+
+    /**
+     * Skips the tokens of a statement which failed to parse, starting again
+     * from its first token: up to and including the next {@code ;} outside
+     * of any nested block, past the {@code END} of a statement with a block,
+     * or up to the end of the enclosing block or the next global or function.
+     * At least one token is always skipped.
+     */
+    private void synchronize(int start) {
+        tokens.index = start;
+        int depth = 0;
+        for (boolean first = true; tokens.has(0); first = false) {
+            Token.Kind kind = tokens.getKind(0);
+            if (!first && (isTopLevel(kind) || depth == 0 && FOLLOW_BLOCK[kind.ordinal()])) {
+                return;
+            }
+            tokens.advance();
+            if (kind == Token.Kind.SEMICOLON && depth == 0) {
+                return;
+            } else if (kind == Token.Kind.DO || kind == Token.Kind.SWITCH) {
+                depth++;
+            } else if (kind == Token.Kind.END && depth > 0 && --depth == 0) {
+                return;
+            }
+        }
     }
 
     /**
@@ -107,8 +474,8 @@ public final class Parser {
      * next tokens start a field, aka {@code LET}.
      */
     public Ast.Global parseGlobal() throws ParseException {
-        // throw new UnsupportedOperationException(); //TODO
-        if (match("VAR")) {
+        if (kind(0) == Token.Kind.VAR) {
+            tokens.advance();
             return parseMutable();
         }
         // Else it's a VAL and is parsed accordingly
@@ -130,26 +497,26 @@ public final class Parser {
             throwException("Missing Identifier", 0);
         }
         if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             // Check for the :
             checkToken();
-            if (match(":")) {
+            if (match(Token.Kind.COLON)) {
                 // Check for the identifier after the :
                 if (!tokens.has(0)) {
                     throwException("Expecting identifier", 0);
                 }
                 if (match(Token.Type.IDENTIFIER)) {
-                    String typeName = tokens.get(-1).getLiteral();
+                    String typeName = tokens.getLiteral(-1);
                     // Check for the '='
                     if (!tokens.has(0)) {
                         throwException("Missing =", 0);
                     }
-                    if (match("=")) {
+                    if (match(Token.Kind.ASSIGN)) {
                         // Check for the [
                         if (!tokens.has(0)) {
                             throwException("Missing =", 0);
                         }
-                        if (match("[")) {
+                        if (match(Token.Kind.LEFT_BRACKET)) {
                             if (!tokens.has(0)) {
                                 throwException("Missing [", 0);
                             }
@@ -157,7 +524,7 @@ public final class Parser {
                             List<Ast.Expression> expressionList = new ArrayList<Ast.Expression>();
                             expressionList.add(parseExpression());
                             // While there are ", expression", add them to the expression list
-                            while (match(",")) {
+                            while (match(Token.Kind.COMMA)) {
                                 // Check that there's an expression after
                                 if (!tokens.has(0)) {
                                     throwException("Missing token", 0);
@@ -169,7 +536,7 @@ public final class Parser {
                             if (!tokens.has(0)) {
                                 throwException("Missing Token", 0);
                             }
-                            if (match("]")) {
+                            if (match(Token.Kind.RIGHT_BRACKET)) {
                                 return new Ast.Global(name, typeName,true, Optional.of(plcList));
                             } else {
                                 throwException("Expecting Closing Bracket ]", 1);
@@ -203,10 +570,10 @@ public final class Parser {
     public Ast.Global parseMutable() throws ParseException {
         // Check whether an identifier follows the VAR
         if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             // Check for the :
             checkToken();
-            if (!match(":")) {
+            if (!match(Token.Kind.COLON)) {
                 throwException("Expecting :", 0);
             }
             // Check for the identifier
@@ -214,29 +581,29 @@ public final class Parser {
             if (!match(Token.Type.IDENTIFIER)) {
                 throwException("Expecting identifier", 0);
             }
-            String typeName = tokens.get(-1).getLiteral();
+            String typeName = tokens.getLiteral(-1);
             // Check whether there is a = that follows
-            if (match("=")) {
+            if (match(Token.Kind.ASSIGN)) {
                 // Check that there is a token that comes after the =
                 if (!tokens.has(0)) {
-                    throw new ParseException("Expecting Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Expecting Identifier", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                 }
                 Optional expr = Optional.of(parseExpression());
                 // check for the closing semicolon
-                if (!match(";")) {
+                if (!match(Token.Kind.SEMICOLON)) {
                     throwException("Missing Semicolon", 0);
                 }
                 return new Ast.Global(name, typeName, true, expr);
             }
             // if there's a token there, but it's not the =, then throw exception
-            else if (tokens.has(0) && !match(";")) {
-                throw new ParseException("Expecting =", tokens.get(0).getIndex());
+            else if (tokens.has(0) && !match(Token.Kind.SEMICOLON)) {
+                throw new ParseException("Expecting =", tokens.getIndex(0));
             }
             // else it's just a variable and identifier so move on accordingly
             Optional<Ast.Expression> expressionOptional = Optional.empty();
             return new Ast.Global(name, typeName, true, expressionOptional);
         } else {
-            throw new ParseException("Missing Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Missing Identifier", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
         }
     }
 
@@ -250,10 +617,10 @@ public final class Parser {
         checkToken();
         // Check whether the token after VAL is an Identifier
         if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             // Check for the :
             checkToken();
-            if (!match(":")) {
+            if (!match(Token.Kind.COLON)) {
                 throwException("Missing :", 0);
             }
             // Check for the Identifier
@@ -261,21 +628,21 @@ public final class Parser {
             if (!match(Token.Type.IDENTIFIER)) {
                 throwException("Expecting Identifier", 0);
             }
-            String typeName = tokens.get(-1).getLiteral();
+            String typeName = tokens.getLiteral(-1);
             // Check for the =
             checkToken();
-            if (match("=")) {
+            if (match(Token.Kind.ASSIGN)) {
                 // Check that the next token is an expression
                 if (!tokens.has(0)) {
-                    throw new ParseException("Missing expression", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Missing expression", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                 }
                 return new Ast.Global(name, typeName,false, Optional.of(parseExpression()));
             }
             else {
-                throw new ParseException("Expecting =", tokens.get(0).getIndex());
+                throw new ParseException("Expecting =", tokens.getIndex(0));
             }
         } else {
-            throw new ParseException("Expecting Identifier", tokens.get(0).getIndex());
+            throw new ParseException("Expecting Identifier", tokens.getIndex(0));
         }
     }
 
@@ -284,20 +651,20 @@ public final class Parser {
      * next tokens start a method, aka {@code DEF}.
      */
     public Ast.Function parseFunction() throws ParseException {
-        if (peek("FUN")) {
+        if (peek(Token.Kind.FUN)) {
             tokens.advance();
         }
         // Check whether there is a valid function name after the FUN keyword, else throw a parse exception
         if (match(Token.Type.IDENTIFIER)) {
             // If the first identifier matches, then grab the name of the identifier since it's the name of the function
-            String functionName = tokens.get(-1).getLiteral();
+            String functionName = tokens.getLiteral(-1);
             // Create the parameter list so that it could be empty if there are parameters to parse
             List<String> parameterList = new ArrayList<String>();
             // Check if there is a '('. If not, then throw an exception
-            if (match("(")) {
+            if (match(Token.Kind.LEFT_PAREN)) {
                 // Check whether there is a token, else it's missing a )
                 if (!tokens.has(0)) {
-                    throw new ParseException("Missing Closing Parenthesis", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                 }
                 boolean type = false;
                 String returnType = "";
@@ -305,11 +672,11 @@ public final class Parser {
                 // Check whether the next token is an identifier, otherwise it must be a ) since it's a function without parameters
                 if (match(Token.Type.IDENTIFIER)) {
                     // If it's an identifier, then make a while loop for , Identifier and store them all in a list of parameters
-                    String parameter1 = tokens.get(-1).getLiteral();
+                    String parameter1 = tokens.getLiteral(-1);
                     parameterList.add(parameter1);
                     // Checking the : after the 2nd identifier
                     checkToken();
-                    if (!match(":")) {
+                    if (!match(Token.Kind.COLON)) {
                         throwException("Expecting :", 1);
                     }
                     // Checking the 2nd identifier after the ( that tells the type
@@ -317,40 +684,40 @@ public final class Parser {
                     if (!match(Token.Type.IDENTIFIER)) {
                         throwException("Expecting Identifier", 1);
                     }
-                    Optional<String> typeName = Optional.of(tokens.get(-1).getLiteral());
+                    Optional<String> typeName = Optional.of(tokens.getLiteral(-1));
                     // Keep the loop going while there's another comma to parse as there are more parameters
-                    while (match(",")) {
+                    while (match(Token.Kind.COMMA)) {
                         // Check that there's a token after the ','. Else it's a trailing comma
                         if (!tokens.has(0)) {
-                            throw new ParseException("Trailing Comma", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                            throw new ParseException("Trailing Comma", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                         }
                         // Check the there is an identifier after the ','. Else it's an invalid parameter
                         if (match(Token.Type.IDENTIFIER)) {
                             // Create and add the new parameter to the List of parameters
-                            String tempParameter = tokens.get(-1).getLiteral();
+                            String tempParameter = tokens.getLiteral(-1);
                             parameterList.add(tempParameter);
                         } else {
-                            throw new ParseException("Identifier Expected", tokens.get(0).getIndex());
+                            throw new ParseException("Identifier Expected", tokens.getIndex(0));
                         }
                         // Check for the : identifier for the type
                         checkToken();
-                        if (!match(":")) {
+                        if (!match(Token.Kind.COLON)) {
                             throwException("Expecting :", 1);
                         }
                         checkToken();
                         if (!match(Token.Type.IDENTIFIER)) {
                             throwException("Expecting IDENTIFIER", 1);
                         }
-                        String tempParameterType = tokens.get(-1).getLiteral();
+                        String tempParameterType = tokens.getLiteral(-1);
                         parameterTypes.add(tempParameterType);
                     }
                     // Check that there is a closing parenthesis
-                    if (match(")")) {
+                    if (match(Token.Kind.RIGHT_PAREN)) {
                         // If there is a ), then move on and check that the next keyword is the DO keyword
-                        if (match("DO")) {
+                        if (match(Token.Kind.DO)) {
                             // Either there will be a block of statements here or it will be empty
                             // If next token matches the END keyword, then it's an empty block of statements and carry on
-                            if (match("END")) {
+                            if (match(Token.Kind.END)) {
                                 // If it's empty list of statement, then create the Ast.Function using the name and parameters from earlier;
                                 List<Ast.Statement> statementList = new ArrayList<Ast.Statement>();
                                 return new Ast.Function(functionName, parameterTypes, parameterList, typeName, statementList);
@@ -361,33 +728,33 @@ public final class Parser {
                                 // check for the semicolon
                                 parseSemicolon();
                                 // check for end
-                                if (!match("END")) {
+                                if (!match(Token.Kind.END)) {
                                     throwException("Missing End", 0);
                                 }
                                 return new Ast.Function(functionName, parameterTypes, parameterList, typeName, statementList);
                             }
                         } else {
-                            throw new ParseException("Missing Do Keyword", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                            throw new ParseException("Missing Do Keyword", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                         }
                     }
                     else {
-                        throw new ParseException("Missing Closing Parenthesis", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                     }
                 // Function with no Parameters
-                } else if (match(")")) {
+                } else if (match(Token.Kind.RIGHT_PAREN)) {
                     // if there is a colon, then there's a type
-                    if (match(":")) {
+                    if (match(Token.Kind.COLON)) {
                         checkToken();
                         if (!match(Token.Type.IDENTIFIER)) {
                             throwException("Expecting Identifier", 1);
                         }
-                        returnType = tokens.get(-1).getLiteral();
+                        returnType = tokens.getLiteral(-1);
                         type = true;
                     }
                     // If there is no identifier, then it's a no parameter function, check the DO keyword;
-                    if (match("DO")) {
+                    if (match(Token.Kind.DO)) {
                         // Check if the next token is END which means it's an empty Block or if there is a block of statements there
-                        if (match("END")) {
+                        if (match(Token.Kind.END)) {
                             List<Ast.Statement> statementList = new ArrayList<Ast.Statement>();
                             // If the block is empty, then create the function Ast and return it
                             // if type is true, then return with a type
@@ -399,7 +766,7 @@ public final class Parser {
                             // else parse the block into a statement list and then create the function ast and return it
                             List<Ast.Statement> statementList = parseBlock();
                             // Check for the DO
-                            if (!match("END")) {
+                            if (!match(Token.Kind.END)) {
                                 throwException("Missing End", 0);
                             }
                             if (type) {
@@ -408,16 +775,16 @@ public final class Parser {
                             return new Ast.Function(functionName, parameterList, statementList);
                         }
                     } else {
-                        throw new ParseException("Missing DO Keyword", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                        throw new ParseException("Missing DO Keyword", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                     }
                 } else {
-                    throw new ParseException("Invalid Parameters", tokens.get(0).getIndex());
+                    throw new ParseException("Invalid Parameters", tokens.getIndex(0));
                 }
             } else {
-                throw new ParseException("Missing Opening Parenthesis", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                throw new ParseException("Missing Opening Parenthesis", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
             }
         } else {
-            throw new ParseException("Missing Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+            throw new ParseException("Missing Identifier", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
         }
     }
 
@@ -426,23 +793,133 @@ public final class Parser {
      * preceding token indicates the opening a block.
      */
     public List<Ast.Statement> parseBlock() throws ParseException {
+        if (iterative && !recovering) {
+            return parseBlockIterative();
+        }
         List<Ast.Statement> statements = new ArrayList<>();
-        while (tokens.has(0)) {
-            if (peek("END")) {
-                break;
+        // a block ends at the end of the tokens or at a keyword following it
+        while (tokens.has(0) && !FOLLOW_BLOCK[tokens.getKind(0).ordinal()]) {
+            if (!recovering) {
+                statements.add(parseStatement());
+                continue;
             }
-            if (peek("ELSE")) {
-                break;
+            int start = tokens.index;
+            try {
+                statements.add(parseStatement());
+            } catch (ParseException e) {
+                errors.add(locate(e));
+                statements.add(new Ast.Statement.Error(e));
+                synchronize(start);
+                // a global or function cannot be inside a block, so this one is missing its end
+                if (tokens.has(0) && isTopLevel(tokens.getKind(0))) {
+                    break;
+                }
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Parses the {@code block} rule like {@link #parseBlock()}, keeping the
+     * statements with blocks being parsed on an explicit stack. Each {@code
+     * IF}, {@code WHILE} or {@code SWITCH} pushes a frame and continues with
+     * its first block; when a block ends, the top frame either moves on to
+     * its next block ({@code ELSE}, {@code CASE} or {@code DEFAULT}) or is
+     * popped and its statement added to the block below. Other statements
+     * have no blocks and are parsed by {@link #parseStatement()}.
+     */
+    private List<Ast.Statement> parseBlockIterative() throws ParseException {
+        List<Ast.Statement> statements = new ArrayList<>();
+        ArrayDeque<BlockFrame> stack = new ArrayDeque<>();
+        while (true) {
+            if (tokens.has(0) && !FOLLOW_BLOCK[tokens.getKind(0).ordinal()]) {
+                Token.Kind kind = tokens.getKind(0);
+                if (kind != Token.Kind.IF && kind != Token.Kind.WHILE && kind != Token.Kind.SWITCH) {
+                    statements.add(parseStatement());
+                    continue;
+                }
+                tokens.advance();
+                if (kind == Token.Kind.WHILE) {
+                    checkToken();
+                }
+                BlockFrame frame = new BlockFrame(kind, parseExpression(), statements);
+                if (kind == Token.Kind.SWITCH) {
+                    parseCase(frame);
+                } else {
+                    parseDo();
+                }
+                stack.push(frame);
+                statements = frame.statements;
+                continue;
             }
-            if (peek("DEFAULT")) {
-                break;
+            BlockFrame frame = stack.peek();
+            if (frame == null) {
+                return statements;
+            } else if (frame.kind == Token.Kind.IF && frame.elseStatements == null && match(Token.Kind.ELSE)) {
+                frame.elseStatements = new ArrayList<>();
+                statements = frame.elseStatements;
+                continue;
+            } else if (frame.kind == Token.Kind.SWITCH) {
+                frame.cases.add(new Ast.Statement.Case(frame.value, frame.statements));
+                if (frame.value.isPresent()) {
+                    parseCase(frame);
+                    statements = frame.statements;
+                    continue;
+                }
             }
-            if (peek("CASE")) {
-                break;
+            parseDone();
+            stack.pop();
+            statements = frame.parent;
+            if (frame.kind == Token.Kind.IF) {
+                statements.add(new Ast.Statement.If(frame.condition, frame.statements,
+                        frame.elseStatements != null ? frame.elseStatements : new ArrayList<>()));
+            } else if (frame.kind == Token.Kind.WHILE) {
+                statements.add(new Ast.Statement.While(frame.condition, frame.statements));
+            } else {
+                statements.add(new Ast.Statement.Switch(frame.condition, frame.cases));
             }
-            statements.add(parseStatement());
         }
-        return statements;
+    }
+
+    /**
+     * Starts the next {@code CASE} or the {@code DEFAULT} of a switch for
+     * {@link #parseBlockIterative()}, as {@link #parseSwitchStatement()}
+     * does.
+     */
+    private void parseCase(BlockFrame frame) throws ParseException {
+        if (match(Token.Kind.CASE)) {
+            frame.value = Optional.of(parseExpression());
+            parseColon();
+        } else if (match(Token.Kind.DEFAULT)) {
+            frame.value = Optional.empty();
+        } else {
+            throwException("Missing Default Case", 0);
+        }
+        frame.statements = new ArrayList<>();
+    }
+
+    /**
+     * A statement with blocks on the stack of {@link #parseBlockIterative()}.
+     * The statements are those of the block being parsed: the then block of
+     * an {@code IF} until {@code elseStatements} is set, and the current case
+     * of a {@code SWITCH}.
+     */
+    private static final class BlockFrame {
+
+        private final Token.Kind kind;
+        private final Ast.Expression condition;
+        private final List<Ast.Statement> parent;
+        private List<Ast.Statement> statements = new ArrayList<>();
+        private List<Ast.Statement> elseStatements;
+        private final List<Ast.Statement.Case> cases = new ArrayList<>();
+        private Optional<Ast.Expression> value;
+
+        private BlockFrame(Token.Kind kind, Ast.Expression condition, List<Ast.Statement> parent) {
+            this.kind = kind;
+            this.condition = condition;
+            this.parent = parent;
+        }
+
     }
 
     /**
@@ -451,34 +928,36 @@ public final class Parser {
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Statement parseStatement() throws ParseException {
-
-        if (peek("LET")) return parseDeclarationStatement();
-        else if (peek("IF")) return parseIfStatement();
-        else if (peek("SWITCH")) return parseSwitchStatement();
-        else if (peek("WHILE")) return parseWhileStatement();
-        else if (peek("RETURN")) return parseReturnStatement();
-        else {
-            Ast.Expression current = parseExpression();
-            if (peek("=")) {
+        // the keyword starting each statement picks its production in one
+        // lookup, and anything else starts an expression or assignment
+        switch (kind(0)) {
+            case LET: return parseDeclarationStatement();
+            case IF: return parseIfStatement();
+            case SWITCH: return parseSwitchStatement();
+            case WHILE: return parseWhileStatement();
+            case RETURN: return parseReturnStatement();
+            default: break;
+        }
+        Ast.Expression current = parseExpression();
+        if (peek(Token.Kind.ASSIGN)) {
+            tokens.advance();
+            Ast.Expression value = parseExpression();
+            if (peek(Token.Kind.SEMICOLON)) {
                 tokens.advance();
-                Ast.Expression value = parseExpression();
-                if (peek(";")) {
-                    tokens.advance();
-                    return new Ast.Statement.Assignment(current, value);
-                } else {
-                    if (tokens.has(0)) throw new ParseException("missing ;", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
-                    else throw new ParseException("missing  ;", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
-                }
+                return new Ast.Statement.Assignment(current, value);
             } else {
-                if (peek(";")) {
-                    tokens.advance();
-                    return new Ast.Statement.Expression(current);
-                }
-                else {
-                    if (tokens.has(0))
-                        throw new ParseException("no ;", tokens.get(0).getIndex());
-                    else throw new ParseException("no ;" + " INDEX:", tokens.index);
-                }
+                if (tokens.has(0)) throw new ParseException("missing ;", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
+                else throw new ParseException("missing  ;", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
+            }
+        } else {
+            if (peek(Token.Kind.SEMICOLON)) {
+                tokens.advance();
+                return new Ast.Statement.Expression(current);
+            }
+            else {
+                if (tokens.has(0))
+                    throw new ParseException("no ;", tokens.getIndex(0));
+                else throw new ParseException("no ;" + " INDEX:", tokens.index);
             }
         }
     }
@@ -490,47 +969,47 @@ public final class Parser {
      */
     public Ast.Statement.Declaration parseDeclarationStatement() throws ParseException {
         tokens.advance();
-        Token Name = tokens.get(0);
+        String name = tokens.getLiteral(0);
         tokens.advance();
         // if the token that follows is a ";", then it's just Let IDENTIFIER;
-        if (peek(";")) {
+        if (peek(Token.Kind.SEMICOLON)) {
             parseSemicolon();
-            return new Ast.Statement.Declaration(Name.getLiteral(), Optional.empty());
+            return new Ast.Statement.Declaration(name, Optional.empty());
         }
         // Using boolean to see if there is a typeName at all
         boolean typeCheck = false;
         Optional<String> typeName = Optional.of("hi");
         // Checking for the :
         checkToken();
-        if (match(":")) {
+        if (match(Token.Kind.COLON)) {
             // Checking for the Identifier
             checkToken();
             if (!match(Token.Type.IDENTIFIER)) {
                 throwException("Expecting Identifier", 1);
             }
             typeCheck = true;
-            typeName = Optional.of(tokens.get(-1).getLiteral());
+            typeName = Optional.of(tokens.getLiteral(-1));
         }
-        if (peek(";")) {
+        if (peek(Token.Kind.SEMICOLON)) {
             parseSemicolon();
             if (typeCheck) {
-                return new Ast.Statement.Declaration(Name.getLiteral(), typeName, Optional.empty());
+                return new Ast.Statement.Declaration(name, typeName, Optional.empty());
             }
             else {
-                return new Ast.Statement.Declaration(Name.getLiteral(), Optional.empty());
+                return new Ast.Statement.Declaration(name, Optional.empty());
             }
 
         }
-        if (peek("=")) {
+        if (peek(Token.Kind.ASSIGN)) {
             tokens.advance();
         }
         Ast.Expression val = parseExpression();
         parseSemicolon();
         if (typeCheck) {
-            return new Ast.Statement.Declaration(Name.getLiteral(), typeName, Optional.of(val));
+            return new Ast.Statement.Declaration(name, typeName, Optional.of(val));
         }
         else {
-            return new Ast.Statement.Declaration(Name.getLiteral(), Optional.of(val));
+            return new Ast.Statement.Declaration(name, Optional.of(val));
         }
     }
 
@@ -548,7 +1027,7 @@ public final class Parser {
         List<Ast.Statement> statements = parseBlock();
 
         List<Ast.Statement> elseStatements = new ArrayList<>();
-        if (match("ELSE")) {
+        if (match(Token.Kind.ELSE)) {
             elseStatements = parseBlock();
             parseDone();
             return new Ast.Statement.If(expr, statements, elseStatements);
@@ -569,10 +1048,10 @@ public final class Parser {
         // Checking the expression
         Ast.Expression expr = parseExpression();
         // Check for a case
-        while(match("CASE")) {
+        while(match(Token.Kind.CASE)) {
             casesList.add(parseCaseStatement());
         }
-        if (match("DEFAULT")) {
+        if (match(Token.Kind.DEFAULT)) {
             // Parses the case statements
             List<Ast.Statement> caseStatements = parseBlock();
             casesList.add(new Ast.Statement.Case(Optional.empty(), caseStatements));
@@ -604,11 +1083,9 @@ public final class Parser {
      * {@code WHILE}.
      */
     public Ast.Statement.While parseWhileStatement() throws ParseException {
-        Token tmp = tokens.get(0);
         tokens.advance();
         checkToken();
         Ast.Expression doWhile = parseExpression();
-        tmp = tokens.get(0);
 
         parseDo();
         List<Ast.Statement> statements = parseBlock();
@@ -631,79 +1108,183 @@ public final class Parser {
         return new Ast.Statement.Return(return_exp);
     }
 
+    /**
+     * The precedence of each binary operator by kind, higher binding tighter,
+     * or 0 for kinds which are not binary operators. All operators are left
+     * associative, so adding an operator only needs an entry here.
+     */
+    private static final int[] PRECEDENCE = new int[Token.Kind.values().length];
+
+    private static final int LOGICAL = 1;
+    private static final int COMPARISON = 2;
+    private static final int ADDITIVE = 3;
+    private static final int MULTIPLICATIVE = 4;
+
+    static {
+        PRECEDENCE[Token.Kind.AND.ordinal()] = LOGICAL;
+        PRECEDENCE[Token.Kind.OR.ordinal()] = LOGICAL;
+        PRECEDENCE[Token.Kind.LESS.ordinal()] = COMPARISON;
+        PRECEDENCE[Token.Kind.GREATER.ordinal()] = COMPARISON;
+        PRECEDENCE[Token.Kind.EQUAL.ordinal()] = COMPARISON;
+        PRECEDENCE[Token.Kind.NOT_EQUAL.ordinal()] = COMPARISON;
+        PRECEDENCE[Token.Kind.PLUS.ordinal()] = ADDITIVE;
+        PRECEDENCE[Token.Kind.MINUS.ordinal()] = ADDITIVE;
+        PRECEDENCE[Token.Kind.TIMES.ordinal()] = MULTIPLICATIVE;
+        PRECEDENCE[Token.Kind.DIVIDE.ordinal()] = MULTIPLICATIVE;
+        PRECEDENCE[Token.Kind.POWER.ordinal()] = MULTIPLICATIVE;
+    }
+
     /**
      * Parses the {@code expression} rule.
      */
     public Ast.Expression parseExpression() throws ParseException {
-        return parseLogicalExpression();
+        return parseBinaryExpression(LOGICAL);
     }
 
     /**
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expression parseLogicalExpression() throws ParseException {
-        Ast.Expression a = parseComparisonExpression();
-        while ((match("&&") || (match("||")))) {
-            String operator = tokens.get(-1).getLiteral();
-            // Checking that there's not a missing operand
-            if (!tokens.has(0)) {
-                throwException("Missing Operand", 0);
-            }
-            Ast.Expression b = new Ast.Expression.Binary(operator, a, parseComparisonExpression());
-            a = b;
-        }
-        return a;
+        return parseBinaryExpression(LOGICAL);
     }
 
     /**
      * Parses the {@code equality-expression} rule.
      */
     public Ast.Expression parseComparisonExpression() throws ParseException {
-        Ast.Expression a = parseAdditiveExpression();
-        while ((match("<") || (match(">")) || (match("==")) || (match("!=")))) {
-            checkToken();
-            String operator = tokens.get(-1).getLiteral();
-            // Checking that there's not a missing operand
-            if (!tokens.has(0)) {
-                throwException("Missing Operand", 0);
-            }
-            Ast.Expression b = new Ast.Expression.Binary(operator, a, parseAdditiveExpression());
-            a = b;
-        }
-        return a;
+        return parseBinaryExpression(COMPARISON);
     }
 
     /**
      * Parses the {@code additive-expression} rule.
      */
     public Ast.Expression parseAdditiveExpression() throws ParseException {
-        Ast.Expression a = parseMultiplicativeExpression();
-        while ((match("+") || (match("-")))) {
-            checkToken();
-            String operator = tokens.get(-1).getLiteral();
-            if (!tokens.has(0)) {
-                throwException("Missing Operand", 0);
-            }
-            Ast.Expression b = new Ast.Expression.Binary(operator, a, parseMultiplicativeExpression());
-            a = b;
-        }
-        return a;
+        return parseBinaryExpression(ADDITIVE);
     }
 
     /**
      * Parses the {@code multiplicative-expression} rule.
      */
     public Ast.Expression parseMultiplicativeExpression() throws ParseException {
-        Ast.Expression a = parsePrimaryExpression();
-        while ((match("*") || (match("/")) || (match("^")))) {
-            String operator = tokens.get(-1).getLiteral();
+        return parseBinaryExpression(MULTIPLICATIVE);
+    }
+
+    /**
+     * Parses a chain of binary operators with at least the given precedence
+     * by precedence climbing: a primary expression, then while the next
+     * operator binds tightly enough, its right operand is parsed with a
+     * higher minimum precedence so operators of the same level associate to
+     * the left. This builds the same trees as a rule per level, with one
+     * call per operator instead of one per level for every primary.
+     */
+    private Ast.Expression parseBinaryExpression(int minimum) throws ParseException {
+        if (iterative) {
+            return parseBinaryIterative(minimum);
+        }
+        Ast.Expression left = parsePrimaryExpression();
+        for (int precedence = precedence(); precedence >= minimum; precedence = precedence()) {
+            String operator = tokens.getKind(0).getLiteral();
+            tokens.advance();
+            // Checking that there's not a missing operand
             if (!tokens.has(0)) {
                 throwException("Missing Operand", 0);
             }
-            Ast.Expression b = new Ast.Expression.Binary(operator, a, parsePrimaryExpression());
-            a = b;
+            left = new Ast.Expression.Binary(operator, left, parseBinaryExpression(precedence + 1));
+        }
+        return left;
+    }
+
+    /**
+     * Parses a chain of binary operators like {@link
+     * #parseBinaryExpression(int)}, keeping the pending left operands on an
+     * explicit stack. Each frame is a level of precedence climbing, or a
+     * group or list offset waiting for its closing token; primary
+     * expressions which do not nest are parsed by {@link
+     * #parsePrimaryExpression()}.
+     */
+    private Ast.Expression parseBinaryIterative(int minimum) throws ParseException {
+        ArrayDeque<ExpressionFrame> stack = new ArrayDeque<>();
+        stack.push(new ExpressionFrame(minimum, null));
+        while (true) {
+            // descend through groups and offsets to a primary expression
+            Ast.Expression value;
+            if (peek(Token.Kind.LEFT_PAREN) && kind(1) != Token.Kind.RIGHT_PAREN) {
+                tokens.advance();
+                stack.push(new ExpressionFrame(0, null));
+                stack.push(new ExpressionFrame(LOGICAL, null));
+                continue;
+            } else if (kind(1) == Token.Kind.LEFT_BRACKET && peek(Token.Type.IDENTIFIER)
+                    && !peek(Token.Kind.TRUE) && !peek(Token.Kind.FALSE) && !peek(Token.Kind.NIL)) {
+                stack.push(new ExpressionFrame(0, tokens.getLiteral(0)));
+                stack.push(new ExpressionFrame(LOGICAL, null));
+                tokens.advance();
+                tokens.advance();
+                continue;
+            }
+            value = parsePrimaryExpression();
+            // then go back up until an operator binds it to the right
+            while (true) {
+                ExpressionFrame frame = stack.peek();
+                if (frame.minimum == 0) {
+                    stack.pop();
+                    if (frame.name == null) {
+                        if (!match(Token.Kind.RIGHT_PAREN)) {
+                            throw new ParseException("Unterminated Group", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
+                        }
+                        value = new Ast.Expression.Group(value);
+                    } else {
+                        if (!match(Token.Kind.RIGHT_BRACKET)) {
+                            throwException("Missing ]", 0);
+                        }
+                        value = new Ast.Expression.Access(Optional.of(value), frame.name);
+                    }
+                    continue;
+                }
+                frame.left = frame.left == null ? value : new Ast.Expression.Binary(frame.operator, frame.left, value);
+                int precedence = precedence();
+                if (precedence >= frame.minimum) {
+                    frame.operator = tokens.getKind(0).getLiteral();
+                    tokens.advance();
+                    if (!tokens.has(0)) {
+                        throwException("Missing Operand", 0);
+                    }
+                    stack.push(new ExpressionFrame(precedence + 1, null));
+                    break;
+                }
+                stack.pop();
+                if (stack.isEmpty()) {
+                    return frame.left;
+                }
+                value = frame.left;
+            }
+        }
+    }
+
+    /**
+     * A frame on the stack of {@link #parseBinaryIterative(int)}: either a
+     * level of precedence climbing with its left operand and operator, or
+     * with a minimum of 0, a group or (with a name) a list offset.
+     */
+    private static final class ExpressionFrame {
+
+        private final int minimum;
+        private final String name;
+        private Ast.Expression left;
+        private String operator;
+
+        private ExpressionFrame(int minimum, String name) {
+            this.minimum = minimum;
+            this.name = name;
         }
-        return a;
+
+    }
+
+    /**
+     * Returns the precedence of the next token, or 0 if it is not a binary
+     * operator (or there is no next token).
+     */
+    private int precedence() {
+        return tokens.has(0) ? PRECEDENCE[tokens.getKind(0).ordinal()] : 0;
     }
 
     /**
@@ -713,63 +1294,54 @@ public final class Parser {
      * not strictly necessary.
      */
     public Ast.Expression parsePrimaryExpression() throws ParseException {
-        if (match("TRUE")) {
+        if (match(Token.Kind.TRUE)) {
             return new Ast.Expression.Literal(new Boolean(true));
-        } else if (match("FALSE")) {
+        } else if (match(Token.Kind.FALSE)) {
             return new Ast.Expression.Literal(new Boolean(false));
-        } else if (match("NIL")) {
+        } else if (match(Token.Kind.NIL)) {
             return new Ast.Expression.Literal(null);
-        } else if (match(Token.Type.INTEGER)) {
-            return new Ast.Expression.Literal(new BigInteger(tokens.get(-1).getLiteral()));
-        } else if (match(Token.Type.DECIMAL)) {
-            return new Ast.Expression.Literal((new BigDecimal(tokens.get(-1).getLiteral())));
-        } else if (match(Token.Type.CHARACTER)) {
-            String characterLiteral = tokens.get(-1).getLiteral();
-            String removed = characterLiteral.replaceAll("\'", "");
-            return new Ast.Expression.Literal(removed.charAt(0));
-        } else if (match(Token.Type.STRING)) {
-            String stringLiteral = tokens.get(-1).getLiteral();
-            String removed = stringLiteral.replaceAll("\"", "");
-            removed = removed.replaceAll("\\\\n", "\n");
-            removed = removed.replaceAll("\\\\r", "\r");
-            removed = removed.replaceAll("\\\\b", "\b");
-            removed = removed.replaceAll("\\\\t", "\t");
-            removed = removed.replaceAll("\\\\", "\\");
-            return new Ast.Expression.Literal(new String(removed));
+        } else if (match(Token.Type.INTEGER) || match(Token.Type.DECIMAL)
+                || match(Token.Type.CHARACTER) || match(Token.Type.STRING)) {
+            // the value decoded by the lexer, or decoded here for other tokens
+            Object value = tokens.getValue(-1);
+            if (value == null) {
+                value = Lexer.decode(tokens.getType(-1), tokens.getLiteral(-1));
+            }
+            return new Ast.Expression.Literal(value);
         } else if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             Optional o = Optional.empty();
-            if (match("[")) {
+            if (match(Token.Kind.LEFT_BRACKET)) {
                 // parse the expression
                 Optional expr = Optional.of(parseExpression());
                 // check for the "]"
-                if (!match("]")) {
+                if (!match(Token.Kind.RIGHT_BRACKET)) {
                     throwException("Missing ]", 0);
                 }
                 return new Ast.Expression.Access(expr, name);
             }
-            if (match("(")) {
+            // a function call without arguments
+            if (match(Token.Kind.LEFT_PAREN, Token.Kind.RIGHT_PAREN)) {
+                return new Ast.Expression.Function(name, new ArrayList<>());
+            }
+            if (match(Token.Kind.LEFT_PAREN)) {
                 List<Ast.Expression> javaList = new ArrayList<>();
                 checkToken();
-                if (match(")")) {
-                    Ast.Expression.PlcList plcList = new Ast.Expression.PlcList(javaList);
-                    return new Ast.Expression.Function(name, plcList.getValues());
-                }
-                else if (match(Token.Type.OPERATOR)) {
+                if (match(Token.Type.OPERATOR)) {
                     throwException("Invalid Closing Bracket", 1);
                 }
                 else {
                     checkToken();
-                    String access1Name = tokens.get(0).getLiteral();
+                    String access1Name = tokens.getLiteral(0);
                     tokens.advance();
                     Ast.Expression.Access access1 = new Ast.Expression.Access(Optional.empty(), access1Name);
                     javaList.add((access1));
-                    while (match(",")) {
+                    while (match(Token.Kind.COMMA)) {
                         checkToken();
                         if (match(Token.Type.OPERATOR)) {
                             throwException("Trailing Comma", 0);
                         }
-                        String tempName = tokens.get(0).getLiteral();
+                        String tempName = tokens.getLiteral(0);
                         tokens.advance();
                         Ast.Expression.Access tempAccess = new Ast.Expression.Access(Optional.empty(), tempName);
                         javaList.add(tempAccess);
@@ -777,7 +1349,7 @@ public final class Parser {
                     }
                     // Check for the closing )
                     checkToken();
-                    if (match(")")) {
+                    if (match(Token.Kind.RIGHT_PAREN)) {
                         Ast.Expression.PlcList plcList = new Ast.Expression.PlcList(javaList);
                         return new Ast.Expression.Function(name, plcList.getValues());
                     }
@@ -787,18 +1359,18 @@ public final class Parser {
                 }
             }
             return new Ast.Expression.Access(o, name);
-        } else if (match("(")) {
+        } else if (match(Token.Kind.LEFT_PAREN)) {
             // If there's no expression between the ' ', then the '('expression')' rule fails and exception is thrown
-            if (match(")")) {
-                throw new ParseException("Missing Expression", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+            if (match(Token.Kind.RIGHT_PAREN)) {
+                throw new ParseException("Missing Expression", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
             } else {
                 // if the next token after '(' isn't ')', that means that there is an expression in the middle, so we parse it
                 Ast.Expression a = parseExpression();
                 // Before returning a group Ast, check that there is a closing ')', else throw an exception
-                if (match(")")) {
+                if (match(Token.Kind.RIGHT_PAREN)) {
                     return new Ast.Expression.Group(a);
                 } else {
-                    throw new ParseException("Unterminated Group", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                    throw new ParseException("Unterminated Group", tokens.getIndex(-1) + tokens.getLiteral(-1).length());
                 }
 
             }
@@ -809,70 +1381,166 @@ public final class Parser {
     }
 
     /**
-     * As in the lexer, returns {@code true} if the current sequence of tokens
-     * matches the given patterns. Unlike the lexer, the pattern is not a regex;
-     * instead it is either a {@link Token.Type}, which matches if the token's
-     * type is the same, or a {@link String}, which matches if the token's
-     * literal is the same.
+     * As in the lexer, returns {@code true} if the next token matches. The
+     * pattern is either a {@link Token.Kind}, which matches a keyword or
+     * operator, or a {@link Token.Type}, which matches if the token's type is
+     * the same. Neither allocates nor compares literals.
      * <p>
-     * In other words, {@code Token(IDENTIFIER, "literal")} is matched by both
-     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}.
-     */
-    private boolean peek(Object... patterns) {
-        for (int i = 0; i < patterns.length; i++) {
-            if (!tokens.has(i)) {
-                return false;
-            } else if (patterns[i] instanceof Token.Type) {
-                if (patterns[i] != tokens.get(i).getType()) {
-                    return false;
-                }
-            } else if (patterns[i] instanceof String) {
-                if (!patterns[i].equals(tokens.get(i).getLiteral())) {
-                    return false;
-                }
-            } else {
-                throw new AssertionError("Invalid pattern object: " + patterns[i].getClass());
-            }
-        }
-        return true;
+     * In other words, {@code Token(IDENTIFIER, "LET")} is matched by both
+     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek(Token.Kind.LET)}.
+     */
+    private boolean peek(Token.Kind kind) {
+        return tokens.has(0) && tokens.getKind(0) == kind;
+    }
+
+    private boolean peek(Token.Type type) {
+        return tokens.has(0) && tokens.getType(0) == type;
+    }
+
+    /**
+     * Returns {@code true} if the next two tokens are of the given kinds.
+     */
+    private boolean peek(Token.Kind first, Token.Kind second) {
+        return tokens.has(1) && tokens.getKind(0) == first && tokens.getKind(1) == second;
     }
 
     /**
-     * As in the lexer, returns {@code true} if {@link #peek(Object...)} is true
-     * and advances the token stream.
+     * As in the lexer, returns {@code true} if {@link #peek(Token.Kind)} is
+     * true and advances the token stream.
      */
-    private boolean match(Object... patterns) {
-        boolean peek = peek(patterns);
+    private boolean match(Token.Kind kind) {
+        boolean peek = peek(kind);
         if (peek) {
-            for (int i = 0; i < patterns.length; i++) {
-                tokens.advance();
-            }
+            tokens.advance();
         }
         return peek;
     }
 
+    private boolean match(Token.Type type) {
+        boolean peek = peek(type);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
 
+    private boolean match(Token.Kind first, Token.Kind second) {
+        boolean peek = peek(first, second);
+        if (peek) {
+            tokens.advance();
+            tokens.advance();
+        }
+        return peek;
+    }
+
+
+    /**
+     * The stream of tokens, backed by a list, a {@link TokenBuffer}, or pulled
+     * from an iterator (such as the {@link Lexer}) into a bounded ring buffer.
+     * The ring buffer keeps the previous token for error reporting and the
+     * next {@link #WINDOW} - 1 tokens of lookahead.
+     * <p>
+     * The parser reads tokens through {@link #getType(int)}, {@link
+     * #getLiteral(int)} and {@link #getIndex(int)} so that a token buffer never
+     * has to create {@link Token} objects.
+     */
     private static final class TokenStream {
 
+        private static final int WINDOW = 8;
+
         private final List<Token> tokens;
+        private final TokenBuffer buffer;
+        private final Iterator<Token> source;
+        private final Token[] window;
         private int index = 0;
+        private int end = 0;
 
         private TokenStream(List<Token> tokens) {
             this.tokens = tokens;
+            this.buffer = null;
+            this.source = null;
+            this.window = null;
+        }
+
+        private TokenStream(TokenBuffer buffer) {
+            this.tokens = null;
+            this.buffer = buffer;
+            this.source = null;
+            this.window = null;
+        }
+
+        private TokenStream(Iterator<Token> source) {
+            this.tokens = null;
+            this.buffer = null;
+            this.source = source;
+            this.window = new Token[WINDOW];
         }
 
         /**
          * Returns true if there is a token at index + offset.
          */
         public boolean has(int offset) {
-            return index + offset < tokens.size();
+            if (tokens != null) {
+                return index + offset < tokens.size();
+            } else if (buffer != null) {
+                return index + offset < buffer.size();
+            }
+            fill(index + offset);
+            return index + offset < end;
         }
 
         /**
-         * Gets the token at index + offset.
+         * Gets the token at index + offset. Prefer the specific getters, which
+         * do not create a token for a token buffer.
          */
         public Token get(int offset) {
-            return tokens.get(index + offset);
+            if (tokens != null) {
+                return tokens.get(index + offset);
+            } else if (buffer != null) {
+                return buffer.get(index + offset);
+            }
+            int position = index + offset;
+            fill(position);
+            if (position < 0 || position >= end || position < end - WINDOW) {
+                throw new IndexOutOfBoundsException("Token " + position + " is outside of the lookahead window.");
+            }
+            return window[position % WINDOW];
+        }
+
+        /**
+         * Gets the type of the token at index + offset.
+         */
+        public Token.Type getType(int offset) {
+            return buffer != null ? buffer.getType(index + offset) : get(offset).getType();
+        }
+
+        /**
+         * Gets the kind of the token at index + offset.
+         */
+        public Token.Kind getKind(int offset) {
+            return buffer != null ? buffer.getKind(index + offset) : get(offset).getKind();
+        }
+
+        /**
+         * Gets the literal of the token at index + offset.
+         */
+        public String getLiteral(int offset) {
+            return buffer != null ? buffer.getLiteral(index + offset) : get(offset).getLiteral();
+        }
+
+        /**
+         * Gets the source index of the token at index + offset.
+         */
+        public int getIndex(int offset) {
+            return buffer != null ? buffer.getIndex(index + offset) : get(offset).getIndex();
+        }
+
+        /**
+         * Gets the value decoded by the lexer of the literal at index +
+         * offset, which is null for a token buffer or hand-built token.
+         */
+        public Object getValue(int offset) {
+            return buffer != null ? null : get(offset).getValue();
         }
 
         /**
@@ -882,6 +1550,17 @@ public final class Parser {
             index++;
         }
 
+        /**
+         * Pulls tokens from the source until the given position is buffered
+         * or the source runs out.
+         */
+        private void fill(int position) {
+            while (end <= position && source.hasNext()) {
+                window[end % WINDOW] = source.next();
+                end++;
+            }
+        }
+
     }
 
 }
@@ -1,5 +1,8 @@
 package plc.project;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public final class Token {
 
     public enum Type {
@@ -11,20 +14,131 @@ public final class Token {
         OPERATOR
     }
 
+    /**
+     * The keywords and operators of the language, so they can be compared by
+     * identity instead of by literal. Every other token has the kind {@link
+     * #NONE}. The lexer uses the {@link #getLiteral() literal} of the kind as
+     * the canonical literal of the token.
+     */
+    public enum Kind {
+        NONE(null, null),
+        LIST(Type.IDENTIFIER, "LIST"),
+        VAR(Type.IDENTIFIER, "VAR"),
+        VAL(Type.IDENTIFIER, "VAL"),
+        FUN(Type.IDENTIFIER, "FUN"),
+        LET(Type.IDENTIFIER, "LET"),
+        IF(Type.IDENTIFIER, "IF"),
+        DO(Type.IDENTIFIER, "DO"),
+        ELSE(Type.IDENTIFIER, "ELSE"),
+        END(Type.IDENTIFIER, "END"),
+        SWITCH(Type.IDENTIFIER, "SWITCH"),
+        CASE(Type.IDENTIFIER, "CASE"),
+        DEFAULT(Type.IDENTIFIER, "DEFAULT"),
+        WHILE(Type.IDENTIFIER, "WHILE"),
+        RETURN(Type.IDENTIFIER, "RETURN"),
+        TRUE(Type.IDENTIFIER, "TRUE"),
+        FALSE(Type.IDENTIFIER, "FALSE"),
+        NIL(Type.IDENTIFIER, "NIL"),
+        AND(Type.OPERATOR, "&&"),
+        OR(Type.OPERATOR, "||"),
+        EQUAL(Type.OPERATOR, "=="),
+        NOT_EQUAL(Type.OPERATOR, "!="),
+        LESS(Type.OPERATOR, "<"),
+        GREATER(Type.OPERATOR, ">"),
+        PLUS(Type.OPERATOR, "+"),
+        MINUS(Type.OPERATOR, "-"),
+        TIMES(Type.OPERATOR, "*"),
+        DIVIDE(Type.OPERATOR, "/"),
+        POWER(Type.OPERATOR, "^"),
+        ASSIGN(Type.OPERATOR, "="),
+        LEFT_PAREN(Type.OPERATOR, "("),
+        RIGHT_PAREN(Type.OPERATOR, ")"),
+        LEFT_BRACKET(Type.OPERATOR, "["),
+        RIGHT_BRACKET(Type.OPERATOR, "]"),
+        COMMA(Type.OPERATOR, ","),
+        SEMICOLON(Type.OPERATOR, ";"),
+        COLON(Type.OPERATOR, ":");
+
+        private static final Map<String, Kind> KEYWORDS = new HashMap<>();
+        private static final Map<String, Kind> OPERATORS = new HashMap<>();
+
+        static {
+            for (Kind kind : values()) {
+                if (kind.type == Type.IDENTIFIER) {
+                    KEYWORDS.put(kind.literal, kind);
+                } else if (kind.type == Type.OPERATOR) {
+                    OPERATORS.put(kind.literal, kind);
+                }
+            }
+        }
+
+        private final Type type;
+        private final String literal;
+
+        Kind(Type type, String literal) {
+            this.type = type;
+            this.literal = literal;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getLiteral() {
+            return literal;
+        }
+
+        /**
+         * Returns the kind of a token with the given type and literal.
+         */
+        public static Kind of(Type type, String literal) {
+            Kind kind = null;
+            if (type == Type.IDENTIFIER) {
+                kind = KEYWORDS.get(literal);
+            } else if (type == Type.OPERATOR) {
+                kind = OPERATORS.get(literal);
+            }
+            return kind != null ? kind : NONE;
+        }
+
+    }
+
     private final Type type;
+    private final Kind kind;
     private final String literal;
     private final int index;
+    private final Object value;
 
     public Token(Type type, String literal, int index) {
+        this(type, Kind.of(type, literal), literal, index);
+    }
+
+    /**
+     * Creates a token whose kind is already known, as done by the lexer.
+     */
+    Token(Type type, Kind kind, String literal, int index) {
+        this(type, kind, literal, index, null);
+    }
+
+    /**
+     * Creates a literal token along with its value decoded by the lexer.
+     */
+    Token(Type type, Kind kind, String literal, int index, Object value) {
         this.type = type;
+        this.kind = kind;
         this.literal = literal;
         this.index = index;
+        this.value = value;
     }
 
     public Type getType() {
         return type;
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
     public String getLiteral() {
         return literal;
     }
@@ -33,6 +147,14 @@ public final class Token {
         return index;
     }
 
+    /**
+     * Returns the value of a literal as decoded by the lexer (a BigInteger,
+     * BigDecimal, Character or String), or null if it was not decoded.
+     */
+    public Object getValue() {
+        return value;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Token
@@ -0,0 +1,108 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A compact alternative to a {@code List<Token>}, storing the tokens of a
+ * source as parallel arrays: the type and kind ordinals as bytes and the start
+ * and end offsets as ints. Literals are sliced out of the source only when
+ * requested, so no {@link Token} (or literal string) is created per token.
+ *
+ * Buffers are created by {@link Lexer#lexBuffer()} and can be parsed directly
+ * with {@link Parser#Parser(TokenBuffer)}.
+ */
+public final class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private final CharSequence source;
+    private byte[] types = new byte[64];
+    private byte[] kinds = new byte[64];
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int size = 0;
+
+    public TokenBuffer(CharSequence source) {
+        this.source = source;
+    }
+
+    /**
+     * Adds a token of the given type and kind spanning the source from start
+     * (inclusive) to end (exclusive).
+     */
+    public void add(Token.Type type, Token.Kind kind, int start, int end) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, 2 * size);
+            kinds = Arrays.copyOf(kinds, 2 * size);
+            starts = Arrays.copyOf(starts, 2 * size);
+            ends = Arrays.copyOf(ends, 2 * size);
+        }
+        types[size] = (byte) type.ordinal();
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of tokens the arrays can hold before growing, for
+     * measuring the retained size of the buffer.
+     */
+    int capacity() {
+        return types.length;
+    }
+
+    public Token.Type getType(int i) {
+        checkIndex(i);
+        return TYPES[types[i]];
+    }
+
+    public Token.Kind getKind(int i) {
+        checkIndex(i);
+        return KINDS[kinds[i]];
+    }
+
+    /**
+     * Returns the index of the token in the source, as {@link Token#getIndex()}.
+     */
+    public int getIndex(int i) {
+        checkIndex(i);
+        return starts[i];
+    }
+
+    public int getLength(int i) {
+        checkIndex(i);
+        return ends[i] - starts[i];
+    }
+
+    /**
+     * Returns the literal of the token. Keywords and operators use the literal
+     * of their kind, anything else is sliced out of the source on each call.
+     */
+    public String getLiteral(int i) {
+        Token.Kind kind = getKind(i);
+        if (kind != Token.Kind.NONE) {
+            return kind.getLiteral();
+        }
+        return source.subSequence(starts[i], ends[i]).toString();
+    }
+
+    /**
+     * Materializes the token at the given position.
+     */
+    public Token get(int i) {
+        return new Token(getType(i), getKind(i), getLiteral(i), getIndex(i));
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+
+}
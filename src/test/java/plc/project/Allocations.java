@@ -0,0 +1,24 @@
+package plc.project;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures allocation for the tests which bound the garbage of a stage.
+ */
+final class Allocations {
+
+    private Allocations() {}
+
+    /**
+     * Returns the number of bytes allocated by the current thread while
+     * running the given task.
+     */
+    static long allocated(Runnable task) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(id);
+        task.run();
+        return bean.getThreadAllocatedBytes(id) - before;
+    }
+
+}
@@ -0,0 +1,139 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+final class AstWriterTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRoundTrip(String test, Ast ast) throws IOException {
+        byte[] analyzed;
+        try {
+            analyzed = write(ast, true);
+        } catch (IllegalArgumentException e) {
+            // a few trees built by hand hold runtime objects as literals
+            Assumptions.assumeTrue(false, e.getMessage());
+            return;
+        }
+        Assertions.assertEquals(ast, read(analyzed));
+        // without the analyzer's results, writing again gives the same bytes
+        byte[] bytes = write(ast, false);
+        Assertions.assertArrayEquals(bytes, write(read(bytes), false));
+    }
+
+    /**
+     * Every tree in the arguments of the parser, analyzer, interpreter and
+     * generator tests.
+     */
+    private static Stream<Arguments> testRoundTrip() throws ReflectiveOperationException {
+        List<Arguments> corpus = new ArrayList<>();
+        for (Class<?> type : Arrays.asList(ParserTests.class, ParserExpressionTests.class,
+                AnalyzerTests.class, InterpreterTests.class, GeneratorTests.class)) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (!Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                        || method.getReturnType() != Stream.class) {
+                    continue;
+                }
+                method.setAccessible(true);
+                for (Object arguments : ((Stream<?>) method.invoke(null)).toArray()) {
+                    Object[] values = ((Arguments) arguments).get();
+                    for (Object value : values) {
+                        if (value instanceof Ast) {
+                            corpus.add(Arguments.of(type.getSimpleName() + "." + method.getName() + ": " + values[0], value));
+                        }
+                    }
+                }
+            }
+        }
+        return corpus.stream();
+    }
+
+    @Test
+    void testLiterals() throws IOException {
+        for (Object literal : Arrays.asList(null, true, false, BigInteger.ONE, new BigInteger("-9223372036854775809"),
+                new BigInteger("123456789012345678901234567890"), new BigDecimal("-1.50"), new BigDecimal("1E+400"),
+                'c', 'é', "", "Hello, 世界!\n")) {
+            Ast.Expression.Literal ast = new Ast.Expression.Literal(literal);
+            Assertions.assertEquals(ast, read(write(ast, false)));
+        }
+    }
+
+    @Test
+    void testSharedStrings() throws IOException {
+        Ast.Expression one = new Ast.Expression.Access(Optional.empty(), "variable");
+        Ast.Expression ten = new Ast.Expression.Binary("+", one, one);
+        for (int i = 0; i < 3; i++) {
+            ten = new Ast.Expression.Binary("+", ten, ten);
+        }
+        // 15 operators and 16 names, each string written once with its
+        // length and then referenced in a byte
+        Assertions.assertEquals(7 + 15 * (1 + 1) + 16 * (1 + 1 + 1) + 2 * 1 + 1 + "variable".length(), write(ten, false).length);
+        Assertions.assertEquals(ten, read(write(ten, false)));
+    }
+
+    @Test
+    void testHeader() throws IOException {
+        byte[] bytes = write(new Ast.Source(Arrays.asList(), Arrays.asList()), false);
+        Assertions.assertEquals(AstWriter.MAGIC, ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF));
+        bytes[5] = AstWriter.VERSION + 1;
+        IOException version = Assertions.assertThrows(IOException.class, () -> read(bytes));
+        Assertions.assertTrue(version.getMessage().contains("version"));
+        bytes[0] = 0;
+        Assertions.assertThrows(IOException.class, () -> read(bytes));
+    }
+
+    @Test
+    void testMappedFile() throws IOException {
+        String input = "VAR x: Integer = 1;\n" +
+                "FUN main(): Integer DO\n" +
+                "    WHILE x < 10 DO x = x + 1; END\n" +
+                "    RETURN x;\n" +
+                "END\n";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        Path path = Files.createTempFile("ast", ".bin");
+        try {
+            byte[] bytes = write(source, true);
+            Files.write(path, bytes);
+            Assertions.assertEquals(source, AstReader.read(path));
+            Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+            Assertions.assertThrows(EOFException.class, () -> AstReader.read(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static byte[] write(Ast ast, boolean analyzed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new AstWriter(new DataOutputStream(bytes), analyzed).write(ast);
+        return bytes.toByteArray();
+    }
+
+    private static Ast read(byte[] bytes) throws IOException {
+        return new AstReader(new DataInputStream(new ByteArrayInputStream(bytes))).read();
+    }
+
+}
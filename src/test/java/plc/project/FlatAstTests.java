@@ -0,0 +1,85 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+final class FlatAstTests {
+
+    private static final String SOURCE = "VAR x: Integer = 1;\n" +
+            "LIST xs: Integer = [1, 2, 3];\n" +
+            "FUN main(): Integer DO\n" +
+            "    WHILE x < 10 DO\n" +
+            "        IF x > 5 && TRUE DO x = x + 2; ELSE x = (x + 1) * 1; END\n" +
+            "    END\n" +
+            "    SWITCH x CASE 1: print(x); DEFAULT RETURN xs[x - 1]; END\n" +
+            "    RETURN x;\n" +
+            "END\n";
+
+    /**
+     * Converts every tree in the arguments of the other tests. The analyzer's
+     * results are not kept, so the trees are compared by their binary form
+     * without them.
+     */
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("plc.project.AstWriterTests#testRoundTrip")
+    void testRoundTrip(String test, Ast ast) throws IOException {
+        byte[] expected;
+        try {
+            expected = write(ast);
+        } catch (IllegalArgumentException e) {
+            Assumptions.assumeTrue(false, e.getMessage());
+            return;
+        }
+        Assertions.assertArrayEquals(expected, write(FlatAst.of(ast).toAst()));
+    }
+
+    @Test
+    void testSource() {
+        Ast.Source source = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        FlatAst flat = FlatAst.of(source);
+        Assertions.assertEquals(source, flat.toAst());
+        Assertions.assertEquals(FlatAst.SOURCE, flat.getKind(0));
+        Assertions.assertEquals(2, flat.getValue(0));
+        Assertions.assertEquals(3, flat.getChildCount(0));
+        int main = flat.getChild(0, 2);
+        Assertions.assertEquals(FlatAst.FUNCTION, flat.getKind(main));
+        Assertions.assertEquals("main", flat.getPool(flat.getValue(main)));
+        // every access of x shares the name in the pool
+        int first = -1;
+        for (int node = 0; node < flat.size(); node++) {
+            if (flat.getKind(node) == FlatAst.ACCESS && "x".equals(flat.getPool(flat.getValue(node)))) {
+                Assertions.assertTrue(first == -1 || first == flat.getValue(node));
+                first = flat.getValue(node);
+            }
+        }
+    }
+
+    @Test
+    void testVisitor() {
+        FlatAst flat = FlatAst.of(new Parser(new Lexer(SOURCE).lex()).parseSource());
+        int nodes = flat.visit((ast, node, children) -> 1 + children.stream().mapToInt(Integer::intValue).sum());
+        Assertions.assertEquals(flat.size(), nodes);
+        // Source, main, WHILE, IF, Assignment, Binary, Group, Binary, Access
+        int depth = flat.visit((ast, node, children) -> 1 + (children.isEmpty() ? 0 : Collections.max(children)));
+        Assertions.assertEquals(9, depth);
+        String operators = flat.visit((ast, node, children) -> ast.getKind(node) == FlatAst.BINARY
+                ? children.get(0) + ast.getPool(ast.getValue(node)) + children.get(1)
+                : String.join("", children));
+        Assertions.assertEquals("<>&&++*-", operators);
+    }
+
+    private static byte[] write(Ast ast) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new AstWriter(new DataOutputStream(bytes), false).write(ast);
+        return bytes.toByteArray();
+    }
+
+}
@@ -472,6 +472,30 @@ final class InterpreterTests {
                         ),
                         BigInteger.valueOf(10)
                 ),
+                // Long.MAX_VALUE + 1
+                Arguments.of("Long Overflow",
+                        new Ast.Expression.Binary("+",
+                                new Ast.Expression.Literal(BigInteger.valueOf(Long.MAX_VALUE)),
+                                new Ast.Expression.Literal(BigInteger.ONE)
+                        ),
+                        BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)
+                ),
+                // Long.MIN_VALUE / -1
+                Arguments.of("Long Division Overflow",
+                        new Ast.Expression.Binary("/",
+                                new Ast.Expression.Literal(BigInteger.valueOf(Long.MIN_VALUE)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ),
+                        BigInteger.valueOf(Long.MIN_VALUE).negate()
+                ),
+                // 2^70 - 2^70
+                Arguments.of("Beyond Long",
+                        new Ast.Expression.Binary("-",
+                                new Ast.Expression.Literal(BigInteger.ONE.shiftLeft(70)),
+                                new Ast.Expression.Literal(BigInteger.ONE.shiftLeft(70))
+                        ),
+                        BigInteger.ZERO
+                ),
                 // 1 / 3.4
                 Arguments.of("Invalid Division: Different Types",
                         new Ast.Expression.Binary("/",
@@ -0,0 +1,54 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class LexerMetricsTests {
+
+    @Test
+    void testCounts() {
+        String source = "LET name = \"Hello, World!\" + 'c' * 12345 - 1.5;";
+        LexerMetrics metrics = new LexerMetrics();
+        Lexer lexer = new Lexer(source);
+        lexer.setListener(metrics);
+        lexer.lex();
+        LexerMetrics.Snapshot snapshot = metrics.snapshot();
+        Assertions.assertEquals(2, snapshot.getCount(Token.Type.IDENTIFIER));
+        Assertions.assertEquals(7, snapshot.getCharacters(Token.Type.IDENTIFIER));
+        Assertions.assertEquals(5, snapshot.getCount(Token.Type.OPERATOR));
+        Assertions.assertEquals(1, snapshot.getCount(Token.Type.STRING));
+        Assertions.assertEquals(1, snapshot.getCount(Token.Type.CHARACTER));
+        Assertions.assertEquals(1, snapshot.getCount(Token.Type.INTEGER));
+        Assertions.assertEquals(1, snapshot.getCount(Token.Type.DECIMAL));
+        Assertions.assertEquals(11, snapshot.getTotalCount());
+        Assertions.assertEquals(4, snapshot.getLongest(Token.Type.IDENTIFIER));
+        Assertions.assertEquals(4, snapshot.getLongestIndex(Token.Type.IDENTIFIER));
+        Assertions.assertEquals(15, snapshot.getLongest(Token.Type.STRING));
+        // "LET" is in [2, 4), "name" in [4, 8) and the string in [8, 16)
+        Assertions.assertEquals(1, snapshot.getHistogram(Token.Type.IDENTIFIER)[2]);
+        Assertions.assertEquals(1, snapshot.getHistogram(Token.Type.IDENTIFIER)[3]);
+        Assertions.assertEquals(1, snapshot.getHistogram(Token.Type.STRING)[4]);
+        Assertions.assertEquals(Long.valueOf(5), snapshot.toMap().get("lexer.operator.count"));
+        Assertions.assertEquals(0, snapshot.getErrors());
+    }
+
+    @Test
+    void testErrors() {
+        LexerMetrics metrics = new LexerMetrics();
+        Lexer lexer = new Lexer("x \"bad \\q\" y &");
+        lexer.setRecovering(true);
+        lexer.setListener(metrics);
+        lexer.lex();
+        Assertions.assertEquals(2, metrics.snapshot().getErrors());
+        Assertions.assertEquals(2, metrics.snapshot().getCount(Token.Type.IDENTIFIER));
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.snapshot().getTotalCount());
+        Assertions.assertThrows(ParseException.class, () -> {
+            Lexer throwing = new Lexer("\"unterminated");
+            throwing.setListener(metrics);
+            throwing.lex();
+        });
+        Assertions.assertEquals(1, metrics.snapshot().getErrors());
+    }
+
+}
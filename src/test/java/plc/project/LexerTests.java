@@ -6,9 +6,20 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 public class LexerTests {
@@ -231,6 +242,33 @@ public class LexerTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testKind(String test, String input, Token.Kind expected) {
+        Token token = new Lexer(input).lexToken();
+        Assertions.assertEquals(expected, token.getKind());
+        Assertions.assertEquals(expected, new Token(token.getType(), input, 0).getKind());
+        if (expected != Token.Kind.NONE) {
+            Assertions.assertSame(expected.getLiteral(), token.getLiteral());
+        }
+    }
+
+    private static Stream<Arguments> testKind() {
+        return Stream.of(
+                Arguments.of("Keyword", "LET", Token.Kind.LET),
+                Arguments.of("Long Keyword", "DEFAULT", Token.Kind.DEFAULT),
+                Arguments.of("Keyword Prefix", "LETTER", Token.Kind.NONE),
+                Arguments.of("Lowercase Keyword", "let", Token.Kind.NONE),
+                Arguments.of("Identifier", "name", Token.Kind.NONE),
+                Arguments.of("Multiple Character Operator", "&&", Token.Kind.AND),
+                Arguments.of("Equality", "==", Token.Kind.EQUAL),
+                Arguments.of("Assignment", "=", Token.Kind.ASSIGN),
+                Arguments.of("Single Character Operator", ";", Token.Kind.SEMICOLON),
+                Arguments.of("Other Operator", "%", Token.Kind.NONE),
+                Arguments.of("String", "\"LET\"", Token.Kind.NONE)
+        );
+    }
+
     @Test
     void testException() {
         ParseException exception = Assertions.assertThrows(ParseException.class,
@@ -238,6 +276,291 @@ public class LexerTests {
         Assertions.assertEquals(13, exception.getIndex());
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testBoundaries(String test, String input, List<Token> expected) {
+        test(input, expected, true);
+    }
+
+    private static Stream<Arguments> testBoundaries() {
+        return Stream.of(
+                // a sign only starts a number when a digit follows it
+                Arguments.of("Minus Identifier", "-x", Arrays.asList(
+                        new Token(Token.Type.OPERATOR, "-", 0),
+                        new Token(Token.Type.IDENTIFIER, "x", 1))
+                ),
+                // a decimal point only belongs to a number when a digit follows it
+                Arguments.of("Trailing Point", "1.", Arrays.asList(
+                        new Token(Token.Type.INTEGER, "1", 0),
+                        new Token(Token.Type.OPERATOR, ".", 1))
+                ),
+                Arguments.of("Point Identifier", "1.x", Arrays.asList(
+                        new Token(Token.Type.INTEGER, "1", 0),
+                        new Token(Token.Type.OPERATOR, ".", 1),
+                        new Token(Token.Type.IDENTIFIER, "x", 2))
+                ),
+                // the token after a zero is not dropped
+                Arguments.of("Zero Semicolon", "0;", Arrays.asList(
+                        new Token(Token.Type.INTEGER, "0", 0),
+                        new Token(Token.Type.OPERATOR, ";", 1))
+                ),
+                Arguments.of("Zero Equals", "0=", Arrays.asList(
+                        new Token(Token.Type.INTEGER, "0", 0),
+                        new Token(Token.Type.OPERATOR, "=", 1))
+                ),
+                // double operators are matched directly after an identifier
+                Arguments.of("And", "a&&b", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "a", 0),
+                        new Token(Token.Type.OPERATOR, "&&", 1),
+                        new Token(Token.Type.IDENTIFIER, "b", 3))
+                ),
+                Arguments.of("Or", "a||b", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "a", 0),
+                        new Token(Token.Type.OPERATOR, "||", 1),
+                        new Token(Token.Type.IDENTIFIER, "b", 3))
+                ),
+                // a lone ! is an operator like a lone =
+                Arguments.of("Not", "!", Arrays.asList(
+                        new Token(Token.Type.OPERATOR, "!", 0))
+                ),
+                Arguments.of("Equals", "=", Arrays.asList(
+                        new Token(Token.Type.OPERATOR, "=", 0))
+                )
+        );
+    }
+
+    @Test
+    void testUnterminatedCharacter() {
+        // reported at the end of the input, where the closing quote is missing
+        ParseException exception = Assertions.assertThrows(ParseException.class,
+                () -> new Lexer("'a").lex());
+        Assertions.assertEquals(2, exception.getIndex());
+    }
+
+    @Test
+    void testLongString() {
+        // 1 MB string literals with escapes, which must lex in linear time
+        StringBuilder builder = new StringBuilder("\"");
+        while (builder.length() < 1024 * 1024) {
+            builder.append("abcdefg\\n");
+        }
+        String literal = builder.append("\"").toString();
+        String input = literal + " " + literal;
+        List<Token> expected = Arrays.asList(
+                new Token(Token.Type.STRING, literal, 0),
+                new Token(Token.Type.STRING, literal, literal.length() + 1)
+        );
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            Assertions.assertEquals(expected, new Lexer(input).lex());
+        });
+    }
+
+    @Test
+    void testReader() {
+        // long enough to refill the window, with a literal larger than the window
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            builder.append("LET x").append(i).append(" = \"value\\t").append(i).append("\" + 'c' != -1.5;\n");
+        }
+        builder.append("\"");
+        for (int i = 0; i < 10000; i++) {
+            builder.append(i % 10 == 0 ? "\\\"" : "a");
+        }
+        String input = builder.append("\"").toString();
+        Assertions.assertEquals(new Lexer(input).lex(), new Lexer(new StringReader(input)).lex());
+    }
+
+    @Test
+    void testRelex() {
+        // random edits, comparing against lexing the edited source from scratch
+        Random random = new Random(0);
+        String[] insertions = {"", " ", "\n", "x", "LET", "1", "-", ".", "=", "&&", "\"", "'", "\\"};
+        String source = "VAR first: Integer = 1;\nFUN main() DO\n    print(\"Hello, World!\" + 'c');\n    first = first - 1.5 != -2;\nEND\n";
+        List<Token> tokens = new Lexer(source).lex();
+        for (int i = 0; i < 2000; i++) {
+            int offset = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(2, source.length() - offset) + 1);
+            String inserted = insertions[random.nextInt(insertions.length)];
+            String edited = source.substring(0, offset) + inserted + source.substring(offset + removed);
+            List<Token> previous = tokens;
+            List<Token> expected;
+            try {
+                expected = new Lexer(edited).lex();
+            } catch (ParseException e) {
+                Assertions.assertThrows(ParseException.class, () -> Lexer.relex(edited, previous, offset, removed, inserted.length()));
+                continue;
+            }
+            tokens = Lexer.relex(edited, previous, offset, removed, inserted.length());
+            Assertions.assertEquals(expected, tokens, edited);
+            source = edited;
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testLexParallel(String test, String input) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize : new int[] {1, 5, 17, 64, 1000}) {
+                try {
+                    List<Token> expected = new Lexer(input).lex();
+                    Assertions.assertEquals(expected, Lexer.lexParallel(input, pool, chunkSize));
+                } catch (ParseException e) {
+                    ParseException exception = Assertions.assertThrows(ParseException.class, () -> Lexer.lexParallel(input, pool, chunkSize));
+                    Assertions.assertEquals(e.getIndex(), exception.getIndex());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testLexParallel() {
+        String line = "LET x = \"a string with  spaces\" + 'c' + ' ' != -1.5 && y == 0;";
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Whitespace", "   \n\t  \n "),
+                Arguments.of("Lines", String.join("\n", line, line, line, line, line)),
+                Arguments.of("Single Line", String.join(" ", line, line, line, line, line)),
+                Arguments.of("Long String", "x " + "\"" + String.join("", Collections.nCopies(50, "a b\\\" ")) + "\" y"),
+                Arguments.of("Invalid Escape", String.join(" ", line, "\"bad \\escape\"", line)),
+                Arguments.of("Unterminated", String.join(" ", line, line, "\"unterminated string"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testFile(String test, String input) throws IOException {
+        Path file = Files.createTempFile("lexer", ".plc");
+        try {
+            Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+            Assertions.assertEquals(new Lexer(input).lex(), Lexer.fromFile(file).lex());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Stream<Arguments> testFile() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("ASCII", "LET x = \"Hello, World!\";\nprint(x);"),
+                Arguments.of("Unicode", "LET ρ = \"ρ★⚡\";\nprint('ρ');")
+        );
+    }
+
+    @Test
+    void testBulkScan() throws IOException {
+        // random ASCII sources, with runs long enough to be scanned by the word
+        // and characters just outside of each class, against the scalar lexer,
+        // from a string and another sequence copied into an array and mapped
+        Random random = new Random(0);
+        String[] pieces = {" ", "   \t  \n", "\r\n\b", "abcdefghijklmnopqrstuvwxyz", "AZaz09_-", "x", "@", "`", "{", "[", "/", ":", "\u007f", "\"s t\"", "'c'", "1.5", "=="};
+        Path file = Files.createTempFile("lexer", ".plc");
+        try {
+            for (int i = 0; i < 200; i++) {
+                StringBuilder builder = new StringBuilder();
+                for (int j = random.nextInt(40); j > 0; j--) {
+                    builder.append(pieces[random.nextInt(pieces.length)]);
+                }
+                String input = builder.toString();
+                Files.write(file, input.getBytes(StandardCharsets.US_ASCII));
+                Lexer scalar = new Lexer(input);
+                scalar.setBulkScan(false);
+                Lexer string = new Lexer(input);
+                string.setBulkScan(true);
+                Lexer sequence = new Lexer(new StringBuilder(input));
+                sequence.setBulkScan(true);
+                Lexer mapped = Lexer.fromFile(file);
+                mapped.setBulkScan(true);
+                try {
+                    List<Token> expected = scalar.lex();
+                    Assertions.assertEquals(expected, string.lex(), input);
+                    Assertions.assertEquals(expected, sequence.lex(), input);
+                    Assertions.assertEquals(expected, mapped.lex(), input);
+                } catch (ParseException e) {
+                    Assertions.assertEquals(e.getIndex(), Assertions.assertThrows(ParseException.class, string::lex, input).getIndex());
+                    Assertions.assertEquals(e.getIndex(), Assertions.assertThrows(ParseException.class, sequence::lex, input).getIndex());
+                    Assertions.assertEquals(e.getIndex(), Assertions.assertThrows(ParseException.class, mapped::lex, input).getIndex());
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testValue(String test, String input, Object expected) {
+        Token token = new Lexer(input).lexToken();
+        Assertions.assertEquals(expected, token.getValue());
+        Assertions.assertEquals(expected, Lexer.decode(token.getType(), token.getLiteral()));
+    }
+
+    private static Stream<Arguments> testValue() {
+        return Stream.of(
+                Arguments.of("Integer", "123", new BigInteger("123")),
+                Arguments.of("Negative Integer", "-45", new BigInteger("-45")),
+                Arguments.of("Long Max", "9223372036854775807", new BigInteger("9223372036854775807")),
+                Arguments.of("Long Min", "-9223372036854775808", new BigInteger("-9223372036854775808")),
+                Arguments.of("Overflow", "123456789012345678901234567890", new BigInteger("123456789012345678901234567890")),
+                Arguments.of("Decimal", "1.50", new BigDecimal("1.50")),
+                Arguments.of("Negative Decimal", "-0.001", new BigDecimal("-0.001")),
+                Arguments.of("Decimal Overflow", "12345678901234567890.5", new BigDecimal("12345678901234567890.5")),
+                Arguments.of("Character", "'c'", 'c'),
+                Arguments.of("Character Escape", "'\\n'", '\n'),
+                Arguments.of("Quote Escape", "'\\''", '\''),
+                Arguments.of("String", "\"Hello, World!\"", "Hello, World!"),
+                Arguments.of("String Escapes", "\"a\\tb\\\"c\\\\d\\'\"", "a\tb\"c\\d'"),
+                Arguments.of("Empty String", "\"\"", "")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testRecovering(String test, String input, List<Token> expected, List<Integer> errors) {
+        Lexer lexer = new Lexer(input);
+        lexer.setRecovering(true);
+        Assertions.assertEquals(expected, lexer.lex());
+        List<Integer> indices = new ArrayList<>();
+        for (ParseException error : lexer.getErrors()) {
+            indices.add(error.getIndex());
+        }
+        Assertions.assertEquals(errors, indices);
+    }
+
+    private static Stream<Arguments> testRecovering() {
+        return Stream.of(
+                Arguments.of("No Errors", "LET x = 'c';", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "LET", 0),
+                        new Token(Token.Type.IDENTIFIER, "x", 4),
+                        new Token(Token.Type.OPERATOR, "=", 6),
+                        new Token(Token.Type.CHARACTER, "'c'", 8),
+                        new Token(Token.Type.OPERATOR, ";", 11)
+                ), Arrays.asList()),
+                Arguments.of("Invalid Escape", "x = \"bad \\q escape\"; y", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "x", 0),
+                        new Token(Token.Type.OPERATOR, "=", 2),
+                        new Token(Token.Type.OPERATOR, ";", 19),
+                        new Token(Token.Type.IDENTIFIER, "y", 21)
+                ), Arrays.asList(10)),
+                Arguments.of("Unterminated String", "x \"abc\ny", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "x", 0),
+                        new Token(Token.Type.IDENTIFIER, "y", 7)
+                ), Arrays.asList(6)),
+                Arguments.of("Empty Character", "'' x", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "x", 3)
+                ), Arrays.asList(1)),
+                Arguments.of("Multiple", "a & b | c &", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "a", 0),
+                        new Token(Token.Type.IDENTIFIER, "b", 4),
+                        new Token(Token.Type.IDENTIFIER, "c", 8)
+                ), Arrays.asList(3, 7, 11)),
+                Arguments.of("Resync At Quote", "&x\"str\"", Arrays.asList(
+                        new Token(Token.Type.STRING, "\"str\"", 2)
+                ), Arrays.asList(1))
+        );
+    }
+
     /**
      * Tests that lexing the input through {@link Lexer#lexToken()} produces a
      * single token with the expected type and literal matching the input.
@@ -0,0 +1,91 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.StringReader;
+import java.util.stream.Stream;
+
+final class LineTableTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testPosition(String test, String source, int index, String expected) {
+        Assertions.assertEquals(expected, LineTable.of(source).format(index));
+    }
+
+    private static Stream<Arguments> testPosition() {
+        return Stream.of(
+                Arguments.of("Start", "LET x;", 0, "1:1"),
+                Arguments.of("First Line", "LET x;", 4, "1:5"),
+                Arguments.of("Newline", "LET x;\nLET y;", 6, "1:7"),
+                Arguments.of("Second Line", "LET x;\nLET y;", 7, "2:1"),
+                Arguments.of("Empty Lines", "\n\n\nx", 3, "4:1"),
+                Arguments.of("CRLF", "a\r\nb", 3, "2:1"),
+                Arguments.of("End", "a\nbc", 4, "2:3")
+        );
+    }
+
+    @Test
+    void testLexer() {
+        String source = String.join("\n",
+                "VAR first: Integer = 1;",
+                "",
+                "FUN main(): Integer DO",
+                "    \t print(\"Hello, World!\");\r",
+                "    RETURN first;",
+                "END",
+                "");
+        LineTable expected = LineTable.of(source);
+        for (boolean bulkScan : new boolean[] {true, false}) {
+            Lexer lexer = new Lexer(source);
+            lexer.setBulkScan(bulkScan);
+            lexer.lex();
+            assertLines(expected, lexer.getLines(), source.length());
+            Lexer reader = new Lexer(new StringReader(source));
+            reader.setBulkScan(bulkScan);
+            reader.lex();
+            assertLines(expected, reader.getLines(), source.length());
+        }
+        // positions agree with counting newlines up to each index
+        Lexer lexer = new Lexer(source);
+        lexer.lex();
+        int line = 1;
+        int column = 1;
+        for (int i = 0; i < source.length(); i++) {
+            Assertions.assertEquals(line + ":" + column, lexer.getLines().format(i));
+            if (source.charAt(i) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+    }
+
+    @Test
+    void testErrors() {
+        String lexer = "VAR x: Integer = 1;\nFUN main(): Integer DO\n    print(\"a\\q\");\nEND\n";
+        ParseException lexError = Assertions.assertThrows(ParseException.class, () -> new Lexer(lexer).lex());
+        Assertions.assertEquals(3, lexError.getLine());
+        Assertions.assertEquals(14, lexError.getColumn());
+        String parser = "VAR x: Integer = 1;\nFUN main(): Integer DO\n    RETURN x +;\nEND\n";
+        Lexer pull = new Lexer(parser);
+        ParseException parseError = Assertions.assertThrows(ParseException.class, () -> new Parser(pull).parseSource());
+        Assertions.assertEquals(3, parseError.getLine());
+        Assertions.assertEquals(15, parseError.getColumn());
+        Assertions.assertTrue(parseError.toString().endsWith(" at 3:15"), parseError.toString());
+    }
+
+    private static void assertLines(LineTable expected, LineTable actual, int length) {
+        Assertions.assertEquals(expected.getLineCount(), actual.getLineCount());
+        for (int line = 1; line <= expected.getLineCount(); line++) {
+            Assertions.assertEquals(expected.getLineStart(line), actual.getLineStart(line));
+        }
+        Assertions.assertEquals(expected.format(length), actual.format(length));
+    }
+
+}
@@ -0,0 +1,75 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+final class ParseCacheTests {
+
+    private static final String SOURCE = "VAR x: Integer = 1;\n" +
+            "FUN main(): Integer DO\n" +
+            "    x = x + 1;\n" +
+            "    RETURN x;\n" +
+            "END\n";
+
+    @Test
+    void testCounters() {
+        // room for SOURCE and one of the globals below, which have 7 tokens
+        ParseCache cache = new ParseCache(new Lexer(SOURCE).lex().size() + 7);
+        Ast.Source shared = cache.get(SOURCE);
+        Assertions.assertSame(shared, cache.get(SOURCE));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        cache.get("VAR y: Integer = 1;");
+        // SOURCE was used last, so the second source is evicted
+        cache.get(SOURCE);
+        cache.get("VAR z: Integer = 1;");
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertSame(shared, cache.get(SOURCE));
+        Assertions.assertEquals(3, cache.getHits());
+        Assertions.assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void testTokenBound() {
+        int tokens = new Lexer(SOURCE).lex().size();
+        ParseCache cache = new ParseCache(tokens);
+        cache.get("VAR y: Integer = 1;");
+        cache.get("VAR z: Integer = 1;");
+        Assertions.assertEquals(14, cache.getTokens());
+        // both globals are evicted to make room
+        Ast.Source shared = cache.get(SOURCE);
+        Assertions.assertEquals(2, cache.getEvictions());
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(tokens, cache.getTokens());
+        // a source larger than the cache is parsed but not cached
+        String large = SOURCE + "FUN f() DO END\n";
+        Assertions.assertEquals(new Parser(new Lexer(large).lex()).parseSource(), cache.get(large));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertSame(shared, cache.get(SOURCE));
+    }
+
+    @Test
+    void testCopyOnAnalyze() {
+        ParseCache cache = new ParseCache(1024);
+        Ast.Source shared = cache.get(SOURCE);
+        Assertions.assertTrue(shared.isShared());
+        // analyzing the shared tree in place is rejected before setting anything
+        Assertions.assertThrows(IllegalStateException.class, () -> new Analyzer(new Scope(null)).visit(shared));
+        Ast.Source analyzed = new Analyzer(new Scope(null)).analyze(shared);
+        Assertions.assertNotSame(shared, analyzed);
+        Assertions.assertFalse(analyzed.isShared());
+        Assertions.assertEquals(Environment.Type.INTEGER, analyzed.getGlobals().get(0).getVariable().getType());
+        // the cached tree is untouched and still returned as is
+        Assertions.assertEquals(new Parser(new Lexer(SOURCE).lex()).parseSource(), shared);
+        Assertions.assertSame(shared, cache.get(SOURCE));
+    }
+
+    @Test
+    void testParseError() {
+        ParseCache cache = new ParseCache(4);
+        Assertions.assertThrows(ParseException.class, () -> cache.get("FUN main() DO x = ; END"));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+}
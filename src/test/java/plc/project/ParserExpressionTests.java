@@ -101,6 +101,14 @@ final class ParserExpressionTests {
                 Arguments.of("Escape Character",
                         Arrays.asList(new Token(Token.Type.STRING, "\"Hello,\\nWorld!\"", 0)),
                         new Ast.Expression.Literal("Hello,\nWorld!")
+                ),
+                Arguments.of("Quote Escapes",
+                        Arrays.asList(new Token(Token.Type.STRING, "\"say \\\"hi\\\" \\\\\"", 0)),
+                        new Ast.Expression.Literal("say \"hi\" \\")
+                ),
+                Arguments.of("Character Escape",
+                        Arrays.asList(new Token(Token.Type.CHARACTER, "'\\''", 0)),
+                        new Ast.Expression.Literal('\'')
                 )
         );
     }
@@ -213,6 +221,45 @@ final class ParserExpressionTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testPrecedence(String test, String input, Ast.Expression expected) {
+        test(new Lexer(input).lex(), expected, Parser::parseExpression);
+    }
+
+    private static Stream<Arguments> testPrecedence() {
+        return Stream.of(
+                Arguments.of("Left Associative", "a - b - c",
+                        binary("-", binary("-", access("a"), access("b")), access("c"))
+                ),
+                Arguments.of("Multiplicative Over Additive", "a + b * c - d",
+                        binary("-", binary("+", access("a"), binary("*", access("b"), access("c"))), access("d"))
+                ),
+                Arguments.of("Same Level Logical", "a || b && c",
+                        binary("&&", binary("||", access("a"), access("b")), access("c"))
+                ),
+                Arguments.of("Every Level", "a && b < c + d * e ^ f",
+                        binary("&&", access("a"), binary("<", access("b"),
+                                binary("+", access("c"), binary("^", binary("*", access("d"), access("e")), access("f")))))
+                ),
+                Arguments.of("Descending Levels", "a * b + c == d || e",
+                        binary("||", binary("==", binary("+", binary("*", access("a"), access("b")), access("c")), access("d")), access("e"))
+                ),
+                Arguments.of("Group", "a * (b + c)",
+                        binary("*", access("a"), new Ast.Expression.Group(binary("+", access("b"), access("c"))))
+                ),
+                Arguments.of("Missing Right Operand", "a + b *", null)
+        );
+    }
+
+    private static Ast.Expression binary(String operator, Ast.Expression left, Ast.Expression right) {
+        return new Ast.Expression.Binary(operator, left, right);
+    }
+
+    private static Ast.Expression access(String name) {
+        return new Ast.Expression.Access(Optional.empty(), name);
+    }
+
     @ParameterizedTest
     @MethodSource
     void testAccessExpression(String test, List<Token> tokens, Ast.Expression.Access expected) {
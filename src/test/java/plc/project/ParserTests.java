@@ -8,10 +8,13 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -1193,16 +1196,270 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testLexerStream() {
+        // the same program as testExample1, repeated so the lookahead window wraps around
+        String function = "FUN main(): Integer DO\n" +
+                "    WHILE first != 10 DO\n" +
+                "        print(first);\n" +
+                "        first = first + 1;\n" +
+                "    END\n" +
+                "END\n";
+        StringBuilder input = new StringBuilder("VAR first: Integer = 1;\n");
+        for (int i = 0; i < 100; i++) {
+            input.append(function);
+        }
+        Ast.Source expected = new Parser(new Lexer(input.toString()).lex()).parseSource();
+        Assertions.assertEquals(100, expected.getFunctions().size());
+        Assertions.assertEquals(expected, new Parser(new Lexer(input.toString())).parseSource());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testReparse(String test, String edited, int reused) {
+        String input = "VAR x: Integer = 1;\n" +
+                "LIST xs: Integer = [1, 2];\n" +
+                "FUN f() DO\n" +
+                "    x = 2;\n" +
+                "END\n" +
+                "\n" +
+                "FUN g() DO\n" +
+                "    WHILE x < 10 DO x = x + 1; END\n" +
+                "END\n";
+        Ast.Source previous = new Parser(new Lexer(input).lex()).parseSource();
+        // the edited range is where the inputs differ, from either end
+        int start = 0;
+        while (start < Math.min(input.length(), edited.length()) && input.charAt(start) == edited.charAt(start)) {
+            start++;
+        }
+        int end = edited.length();
+        for (int i = input.length(); end > start && i > start && input.charAt(i - 1) == edited.charAt(end - 1); i--) {
+            end--;
+        }
+        List<Token> tokens = new Lexer(edited).lex();
+        Ast.Source source = Parser.reparse(previous, tokens, start, end);
+        Assertions.assertEquals(new Parser(tokens).parseSource(), source);
+        long same = Stream.concat(source.getGlobals().stream(), source.getFunctions().stream())
+                .filter(ast -> Stream.concat(previous.getGlobals().stream(), previous.getFunctions().stream()).anyMatch(old -> old == ast))
+                .count();
+        Assertions.assertEquals(reused, same);
+    }
+
+    private static Stream<Arguments> testReparse() {
+        String prefix = "VAR x: Integer = 1;\nLIST xs: Integer = [1, 2];\n";
+        return Stream.of(
+                Arguments.of("Statement",
+                        prefix + "FUN f() DO\n    x = 3;\nEND\n\nFUN g() DO\n    WHILE x < 10 DO x = x + 1; END\nEND\n", 3
+                ),
+                Arguments.of("Nested Block",
+                        prefix + "FUN f() DO\n    x = 2;\nEND\n\nFUN g() DO\n    WHILE x < 10 DO x = x + 2; print(x); END\nEND\n", 3
+                ),
+                Arguments.of("Global",
+                        "VAR y: Integer = 1;\nLIST xs: Integer = [1, 2];\nFUN f() DO\n    x = 2;\nEND\n\nFUN g() DO\n    WHILE x < 10 DO x = x + 1; END\nEND\n", 3
+                ),
+                Arguments.of("Whitespace",
+                        prefix + "FUN f() DO\n    x = 2;\nEND\n \nFUN g() DO\n    WHILE x < 10 DO x = x + 1; END\nEND\n", 4
+                ),
+                Arguments.of("Added Function",
+                        prefix + "FUN f() DO\n    x = 2;\nEND\nFUN h() DO END\n\nFUN g() DO\n    WHILE x < 10 DO x = x + 1; END\nEND\n", 0
+                )
+        );
+    }
+
+    @Test
+    void testReparseImmutable() {
+        String input = "VAL a: Integer = 1;\nFUN f() DO\n    x = 2;\nEND\n";
+        Ast.Source previous = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(1, previous.getGlobals().size());
+        Assertions.assertEquals(1, previous.getFunctions().size());
+        // edit the function, then the global, each reusing the other
+        String function = input.replace("x = 2;", "x = 3;");
+        List<Token> tokens = new Lexer(function).lex();
+        Ast.Source source = Parser.reparse(previous, tokens, function.indexOf('3'), function.indexOf('3') + 1);
+        Assertions.assertEquals(new Parser(tokens).parseSource(), source);
+        Assertions.assertSame(previous.getGlobals().get(0), source.getGlobals().get(0));
+        String global = input.replace("= 1;", "= 4;");
+        tokens = new Lexer(global).lex();
+        source = Parser.reparse(previous, tokens, global.indexOf('4'), global.indexOf('4') + 1);
+        Assertions.assertEquals(new Parser(tokens).parseSource(), source);
+        Assertions.assertSame(previous.getFunctions().get(0), source.getFunctions().get(0));
+    }
+
+    @Test
+    void testParallel() {
+        StringBuilder input = new StringBuilder("VAR x: Integer = 1;\nLIST xs: Integer = [1, 2];\nVAL y: Integer = 2;\nVAL z: Integer = 3;\n");
+        for (int i = 0; i < 1000; i++) {
+            input.append("FUN f").append(i).append("() DO\n")
+                    .append("    SWITCH x CASE 1: x = 2; DEFAULT WHILE x < 10 DO x = x + ").append(i).append("; END END\n")
+                    .append("    print(x);\n")
+                    .append("END\n");
+        }
+        List<Token> tokens = new Lexer(input.toString()).lex();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Ast.Source source = Parser.parseParallel(tokens, pool);
+            Assertions.assertEquals(4, source.getGlobals().size());
+            Assertions.assertEquals(1000, source.getFunctions().size());
+            Assertions.assertEquals(new Parser(tokens).parseSource(), source);
+            for (String small : Arrays.asList("VAL a: Integer = 1; FUN f() DO END", "VAL a: Integer = 1; VAL b: Integer = 2;")) {
+                List<Token> smallTokens = new Lexer(small).lex();
+                Assertions.assertEquals(new Parser(smallTokens).parseSource(), Parser.parseParallel(smallTokens, pool));
+            }
+            // a broken function reports the same first error as parseSource
+            List<Token> broken = new Lexer(input.toString().replace("x = x + 500;", "x = x +;")).lex();
+            ParseException expected = Assertions.assertThrows(ParseException.class, () -> new Parser(broken).parseSource());
+            ParseException actual = Assertions.assertThrows(ParseException.class, () -> Parser.parseParallel(broken, pool));
+            Assertions.assertEquals(expected.getIndex(), actual.getIndex());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testDeepNesting(String test, String open, String middle, String close, Function<Ast, Ast> child) {
+        int depth = 100_000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            input.append(open);
+        }
+        input.append(middle);
+        for (int i = 0; i < depth; i++) {
+            input.append(close);
+        }
+        Parser parser = new Parser(new Lexer(input.toString()).lex());
+        parser.setIterative(true);
+        Ast ast = test.startsWith("Statement") ? parser.parseStatement() : parser.parseExpression();
+        // Ast.equals is recursive as well, so walk down the tree instead
+        for (int i = 0; i < depth; i++) {
+            ast = child.apply(ast);
+        }
+        Assertions.assertEquals(new Ast.Expression.Access(Optional.empty(), "x"), test.startsWith("Statement")
+                ? ((Ast.Statement.Expression) ast).getExpression() : ast);
+    }
+
+    private static Stream<Arguments> testDeepNesting() {
+        Function<Ast, Ast> body = ast -> ast instanceof Ast.Statement.If ? ((Ast.Statement.If) ast).getElseStatements().get(0)
+                : ast instanceof Ast.Statement.While ? ((Ast.Statement.While) ast).getStatements().get(0)
+                : ((Ast.Statement.Switch) ast).getCases().get(1).getStatements().get(0);
+        return Stream.of(
+                Arguments.of("Statement If", "IF c DO ELSE ", "x;", " END", body),
+                Arguments.of("Statement While", "WHILE c DO ", "x;", " END", body),
+                Arguments.of("Statement Switch", "SWITCH c CASE 1: y; DEFAULT ", "x;", " END", body),
+                Arguments.of("Group", "(", "x", ")", (Function<Ast, Ast>) ast -> ((Ast.Expression.Group) ast).getExpression()),
+                Arguments.of("Offset", "a[", "x", "]", (Function<Ast, Ast>) ast -> ((Ast.Expression.Access) ast).getOffset().get()),
+                Arguments.of("Right Operands", "1 + (", "x", ")", (Function<Ast, Ast>) ast -> ((Ast.Expression.Group)
+                        ((Ast.Expression.Binary) ast).getRight()).getExpression())
+        );
+    }
+
+    @Test
+    void testAllocation() {
+        // each statement x = y; is four tokens and an Assignment with two
+        // Access nodes, so building the same tree directly is subtracted to
+        // leave what the parser allocates besides the nodes, which must stay
+        // below a single object per token
+        StringBuilder input = new StringBuilder("FUN main() DO\n");
+        for (int i = 0; i < 10000; i++) {
+            input.append("    x = y;\n");
+        }
+        List<Token> tokens = new Lexer(input.append("END\n").toString()).lex();
+        Runnable build = () -> {
+            List<Ast.Statement> statements = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                statements.add(new Ast.Statement.Assignment(
+                        new Ast.Expression.Access(Optional.empty(), "x"),
+                        new Ast.Expression.Access(Optional.empty(), "y")
+                ));
+            }
+            new Ast.Source(new ArrayList<>(), Arrays.asList(new Ast.Function("main", new ArrayList<>(), statements)));
+        };
+        // warm up to the steady state
+        for (int i = 0; i < 10; i++) {
+            new Parser(tokens).parseSource();
+            build.run();
+        }
+        long overhead = Allocations.allocated(() -> new Parser(tokens).parseSource()) - Allocations.allocated(build);
+        Assertions.assertTrue(overhead < 8L * tokens.size(), "Parsing allocated " + overhead / tokens.size() + " bytes per token besides the tree.");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRecovering(String test, String input, List<Integer> indices, int functions, int statements) {
+        Parser parser = new Parser(new Lexer(input).lex());
+        parser.setRecovering(true);
+        Ast.Source source = parser.parseSource();
+        Assertions.assertEquals(indices, parser.getErrors().stream().map(ParseException::getIndex).collect(Collectors.toList()));
+        if (indices.isEmpty()) {
+            // valid input parses the same with and without recovery
+            Assertions.assertEquals(new Parser(new Lexer(input).lex()).parseSource(), source);
+        }
+        Assertions.assertEquals(functions, source.getFunctions().size());
+        Assertions.assertEquals(statements, source.getFunctions().stream().mapToInt(f -> f.getStatements().size()).sum());
+    }
+
+    private static Stream<Arguments> testRecovering() {
+        return Stream.of(
+                Arguments.of("No Errors",
+                        "VAR x: Integer = 1; FUN main() DO x = 2; END",
+                        Arrays.asList(), 1, 1
+                ),
+                Arguments.of("Statement Errors",
+                        // missing semicolon after 1, then a dangling operator
+                        "FUN main() DO LET x = 1 LET y = 2; x = y +; print(x); END",
+                        Arrays.asList(23, 42), 1, 3
+                ),
+                Arguments.of("Nested Block",
+                        // the error is inside the WHILE, which is kept
+                        "FUN main() DO WHILE x DO x = ; END print(x); END",
+                        Arrays.asList(29), 1, 2
+                ),
+                Arguments.of("Invalid Source Keyword",
+                        "x; FUN f() DO END LET y; FUN g() DO END",
+                        Arrays.asList(0, 18), 2, 0
+                ),
+                Arguments.of("Missing End",
+                        // f runs into g, which is still parsed
+                        "FUN f() DO x = ; FUN g() DO y; END",
+                        Arrays.asList(15, 16), 1, 1
+                ),
+                Arguments.of("Immutable Globals",
+                        "VAL a: Integer = 1; VAL b: Integer = 2; FUN f() DO x; END",
+                        Arrays.asList(), 1, 1
+                ),
+                Arguments.of("Immutable Missing Semicolon",
+                        // the missing ; is reported and f is still parsed
+                        "VAL a: Integer = 1 FUN f() DO x; END",
+                        Arrays.asList(18), 1, 1
+                )
+        );
+    }
+
+    @Test
+    void testErrorNode() {
+        Parser parser = new Parser(new Lexer("FUN main() DO x = ; y; END").lex());
+        parser.setRecovering(true);
+        Ast.Function function = parser.parseSource().getFunctions().get(0);
+        Assertions.assertEquals(Arrays.asList(
+                new Ast.Statement.Error(new ParseException("Invalid Primary Expression", 18)),
+                new Ast.Statement.Expression(new Ast.Expression.Access(Optional.empty(), "y"))
+        ), function.getStatements());
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).
      */
     private static <T extends Ast> void test(List<Token> tokens, T expected, Function<Parser, T> function) {
         Parser parser = new Parser(tokens);
+        Parser iterative = new Parser(tokens);
+        iterative.setIterative(true);
         if (expected != null) {
             Assertions.assertEquals(expected, function.apply(parser));
+            Assertions.assertEquals(expected, function.apply(iterative));
         } else {
             Assertions.assertThrows(ParseException.class, () -> function.apply(parser));
+            Assertions.assertThrows(ParseException.class, () -> function.apply(iterative));
         }
     }
 
@@ -0,0 +1,77 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class TokenBufferTests {
+
+    private static final String PROGRAM = String.join("\n",
+            "VAR first: Integer = 1;",
+            "VAR name: String = \"Hello,\\tWorld\";",
+            "FUN main(): Integer DO",
+            "    WHILE first != 10 DO",
+            "        print(first);",
+            "        first = first + 1 * -2.5;",
+            "    END",
+            "    IF first == 'c' && TRUE DO RETURN first; END",
+            "END",
+            "");
+
+    @Test
+    void testTokens() {
+        TokenBuffer buffer = new Lexer(PROGRAM).lexBuffer();
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            tokens.add(buffer.get(i));
+        }
+        Assertions.assertEquals(new Lexer(PROGRAM).lex(), tokens);
+    }
+
+    @Test
+    void testParser() {
+        Ast.Source expected = new Parser(new Lexer(PROGRAM).lex()).parseSource();
+        Assertions.assertEquals(1, expected.getFunctions().size());
+        Assertions.assertEquals(expected, new Parser(new Lexer(PROGRAM).lexBuffer()).parseSource());
+    }
+
+    @Test
+    void testFootprint() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 1024 * 1024) {
+            builder.append(PROGRAM);
+        }
+        String source = builder.toString();
+        long list = retained(new Lexer(source).lex());
+        long buffer = retained(new Lexer(source).lexBuffer());
+        Assertions.assertTrue(buffer * 3 < list, "TokenBuffer retains " + buffer + " bytes, List<Token> retains " + list + " bytes.");
+    }
+
+    /**
+     * Returns a lower bound on the bytes retained by the tokens with
+     * compressed references: the backing array, each token and its literal,
+     * leaving out the values.
+     */
+    private static long retained(List<Token> tokens) {
+        long bytes = align(16 + 4L * tokens.size());
+        for (Token token : tokens) {
+            bytes += align(12 + 4 * 4 + 4) + align(12 + 4 + 4 + 4) + align(16 + 2L * token.getLiteral().length());
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the bytes retained by the arrays of the buffer at their current
+     * capacity, not counting the source it shares with the caller.
+     */
+    private static long retained(TokenBuffer buffer) {
+        return 2 * align(16 + buffer.capacity()) + 2 * align(16 + 4L * buffer.capacity());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+}